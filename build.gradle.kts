@@ -4,5 +4,7 @@ plugins {
 
 subprojects {
     apply(plugin = "org.springframework.cloud.java-conventions")
-    apply(plugin = "com.ll.publish")
+    if (name != "ll-sleuth-benchmarks") {
+        apply(plugin = "com.ll.publish")
+    }
 }
@@ -2,6 +2,7 @@ dependencies {
     implementation(project(":ll-sleuth-instrumentation"))
 
     implementation("io.micrometer:micrometer-tracing")
+    compileOnly("io.micrometer:micrometer-core")
 
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.cloud:spring-cloud-context")
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.sleuth.autoconfig.exporter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.tracing.exporter.SpanReporter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.cloud.sleuth.exporter.AsyncSpanReporter;
+
+/**
+ * Makes the {@link AsyncSpanReporter} the only {@link SpanReporter} that can be injected.
+ * The other reporter beans become its delegates: they are no autowire candidates any
+ * more, so a consumer of all the reporters does not report each span twice, and the
+ * asynchronous reporter depends on them, so it is stopped before they are closed.
+ */
+class AsyncSpanReporterBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+	private static final Log log = LogFactory.getLog(AsyncSpanReporterBeanFactoryPostProcessor.class);
+
+	static final String BEAN_NAME = "asyncSpanReporter";
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		if (!beanFactory.containsBeanDefinition(BEAN_NAME)) {
+			return;
+		}
+		List<String> delegates = delegateNames(beanFactory);
+		for (String name : delegates) {
+			if (beanFactory.containsBeanDefinition(name)) {
+				beanFactory.getBeanDefinition(name).setAutowireCandidate(false);
+			}
+		}
+		BeanDefinition definition = beanFactory.getBeanDefinition(BEAN_NAME);
+		definition.setDependsOn(delegates.toArray(new String[0]));
+		if (log.isDebugEnabled()) {
+			log.debug("Span reporters " + delegates + " are reported to through [" + BEAN_NAME + "]");
+		}
+	}
+
+	/**
+	 * Names of the {@link SpanReporter} beans the asynchronous reporter hands the spans to.
+	 * @param beanFactory the bean factory
+	 * @return the delegate bean names, never the asynchronous reporters themselves
+	 */
+	static List<String> delegateNames(ListableBeanFactory beanFactory) {
+		List<String> names = new ArrayList<>();
+		for (String name : beanFactory.getBeanNamesForType(SpanReporter.class, true, false)) {
+			if (!beanFactory.isTypeMatch(name, AsyncSpanReporter.class)) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.sleuth.autoconfig.exporter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.sleuth.exporter.AsyncSpanReporter;
+
+/**
+ * Exports the queue depth and the reported / dropped spans of the
+ * {@link AsyncSpanReporter}s as Micrometer meters, tagged with the class of the
+ * reporter they hand the spans to.
+ */
+class AsyncSpanReporterMeterBinder implements MeterBinder {
+
+	private static final String SPANS_DESCRIPTION = "Spans handed to the reporter (reported) or lost because the "
+			+ "buffer was full or the reporter failed (dropped)";
+
+	private final ObjectProvider<AsyncSpanReporter> reporters;
+
+	AsyncSpanReporterMeterBinder(ObjectProvider<AsyncSpanReporter> reporters) {
+		this.reporters = reporters;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.reporters.orderedStream().forEach(reporter -> bindTo(registry, reporter));
+	}
+
+	private void bindTo(MeterRegistry registry, AsyncSpanReporter reporter) {
+		String name = reporter.getDelegate().getClass().getSimpleName();
+		Gauge.builder("sleuth.reporter.queue.depth", reporter, AsyncSpanReporter::queueDepth)
+				.tag("reporter", name).description("Finished spans waiting to be reported").register(registry);
+		Gauge.builder("sleuth.reporter.queue.capacity", reporter, AsyncSpanReporter::capacity)
+				.tag("reporter", name).description("Finished spans the buffer holds").register(registry);
+		FunctionCounter.builder("sleuth.reporter.spans", reporter, AsyncSpanReporter::reportedSpans)
+				.tag("reporter", name).tag("result", "reported").description(SPANS_DESCRIPTION).register(registry);
+		FunctionCounter.builder("sleuth.reporter.spans", reporter, AsyncSpanReporter::droppedSpans)
+				.tag("reporter", name).tag("result", "dropped").description(SPANS_DESCRIPTION).register(registry);
+	}
+
+}
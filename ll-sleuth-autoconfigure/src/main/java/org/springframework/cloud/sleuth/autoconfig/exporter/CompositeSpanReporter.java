@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.exporter;
+
+import java.util.List;
+
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanReporter;
+
+/**
+ * Hands the spans to several reporters, the delegate of the {@code AsyncSpanReporter}
+ * when there is more than one {@link SpanReporter} bean. The reporters are beans of their
+ * own, closed by the bean factory.
+ */
+class CompositeSpanReporter implements SpanReporter {
+
+	private final SpanReporter[] reporters;
+
+	CompositeSpanReporter(List<SpanReporter> reporters) {
+		this.reporters = reporters.toArray(new SpanReporter[0]);
+	}
+
+	@Override
+	public void report(FinishedSpan span) {
+		for (SpanReporter reporter : this.reporters) {
+			reporter.report(span);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompositeSpanReporter" + List.of(this.reporters);
+	}
+
+}
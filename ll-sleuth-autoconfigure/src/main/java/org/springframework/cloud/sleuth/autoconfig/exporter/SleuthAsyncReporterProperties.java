@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.sleuth.autoconfig.exporter;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.sleuth.exporter.AsyncSpanReporter;
+
+/**
+ * Sleuth asynchronous span reporting settings.
+ */
+@ConfigurationProperties("spring.sleuth.reporter.async")
+public class SleuthAsyncReporterProperties {
+
+	/**
+	 * When true an {@link AsyncSpanReporter} bean takes the place of the span reporter
+	 * beans, so that spans are reported off the thread that finished them.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Number of finished spans buffered per reporter, rounded up to a power of two.
+	 */
+	private int capacity = 8192;
+
+	/**
+	 * Max number of spans handed to a reporter in one go.
+	 */
+	private int batchSize = 256;
+
+	/**
+	 * How long the reporter thread waits for spans when the buffer is empty.
+	 */
+	private Duration flushInterval = Duration.ofMillis(10);
+
+	/**
+	 * What happens to a span when the buffer is full.
+	 */
+	private AsyncSpanReporter.OverflowPolicy overflowPolicy = AsyncSpanReporter.OverflowPolicy.DROP;
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public Duration getFlushInterval() {
+		return this.flushInterval;
+	}
+
+	public void setFlushInterval(Duration flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public AsyncSpanReporter.OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	public void setOverflowPolicy(AsyncSpanReporter.OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+}
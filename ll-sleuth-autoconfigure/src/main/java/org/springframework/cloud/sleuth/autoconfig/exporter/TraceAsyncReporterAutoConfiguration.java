@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.sleuth.autoconfig.exporter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.exporter.SpanReporter;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.sleuth.exporter.AsyncSpanReporter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+
+/**
+ * {@link org.springframework.boot.autoconfigure.EnableAutoConfiguration
+ * Auto-configuration} that reports the finished spans asynchronously, enabled with
+ * {@code spring.sleuth.reporter.async.enabled=true}.
+ * <p>
+ * The {@link AsyncSpanReporter} is then the only {@link SpanReporter} autowire candidate:
+ * the other reporter beans stay in the context as its delegates but are not injected by
+ * type any more, so that nothing reports to them directly as well. A delegate needed
+ * elsewhere has to be injected by name.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(SpanReporter.class)
+@ConditionalOnProperty(value = "spring.sleuth.reporter.async.enabled")
+@ConditionalOnBean(SpanReporter.class)
+@EnableConfigurationProperties(SleuthAsyncReporterProperties.class)
+public class TraceAsyncReporterAutoConfiguration {
+
+	@Bean
+	static AsyncSpanReporterBeanFactoryPostProcessor asyncSpanReporterBeanFactoryPostProcessor() {
+		return new AsyncSpanReporterBeanFactoryPostProcessor();
+	}
+
+	@Bean(name = AsyncSpanReporterBeanFactoryPostProcessor.BEAN_NAME, destroyMethod = "stop")
+	AsyncSpanReporter asyncSpanReporter(ListableBeanFactory beanFactory, SleuthAsyncReporterProperties properties) {
+		List<SpanReporter> reporters = new ArrayList<>();
+		for (String name : AsyncSpanReporterBeanFactoryPostProcessor.delegateNames(beanFactory)) {
+			reporters.add(beanFactory.getBean(name, SpanReporter.class));
+		}
+		AnnotationAwareOrderComparator.sort(reporters);
+		SpanReporter delegate = reporters.size() == 1 ? reporters.get(0) : new CompositeSpanReporter(reporters);
+		return new AsyncSpanReporter(delegate, properties.getCapacity(), properties.getBatchSize(),
+				properties.getFlushInterval(), properties.getOverflowPolicy());
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	static class AsyncSpanReporterMetricsConfiguration {
+
+		@Bean
+		AsyncSpanReporterMeterBinder asyncSpanReporterMeterBinder(ObjectProvider<AsyncSpanReporter> reporters) {
+			return new AsyncSpanReporterMeterBinder(reporters);
+		}
+
+	}
+
+}
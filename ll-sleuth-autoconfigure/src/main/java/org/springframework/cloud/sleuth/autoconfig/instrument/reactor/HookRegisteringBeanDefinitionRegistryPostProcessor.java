@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.reactor;
+
+import java.io.Closeable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.sleuth.instrument.reactor.ReactorSleuth;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Installs the Reactor hooks as early as possible, so that the publishers assembled while
+ * the context is being refreshed get instrumented too. The hooks are removed when the
+ * context is closed.
+ */
+class HookRegisteringBeanDefinitionRegistryPostProcessor implements BeanDefinitionRegistryPostProcessor, Closeable {
+
+	private static final Log log = LogFactory.getLog(HookRegisteringBeanDefinitionRegistryPostProcessor.class);
+
+	final ConfigurableApplicationContext springContext;
+
+	HookRegisteringBeanDefinitionRegistryPostProcessor(ConfigurableApplicationContext springContext) {
+		this.springContext = springContext;
+	}
+
+	@Override
+	public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+		// the configuration properties are not bound yet at this stage
+		SleuthReactorProperties properties = Binder.get(this.springContext.getEnvironment())
+				.bind("spring.sleuth.reactor", SleuthReactorProperties.class).orElseGet(SleuthReactorProperties::new);
+		if (log.isDebugEnabled()) {
+			log.debug("Installing Reactor hooks for instrumentation type [" + properties.getInstrumentationType()
+					+ "]");
+		}
+		ReactorSleuth.installHooks(this.springContext, properties.getInstrumentationType());
+	}
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+	}
+
+	@Override
+	public void close() {
+		if (log.isDebugEnabled()) {
+			log.debug("Removing Reactor hooks");
+		}
+		ReactorSleuth.resetHooks();
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.reactor;
+
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.sleuth.instrument.reactor.ReactorSleuth;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Refreshes the logging levels captured by the reactor instrumentation on an environment
+ * change. Unordered like the Spring Cloud {@code LoggingRebinder} and registered after
+ * it, so that it is called once the {@code logging.level} properties were applied.
+ */
+class LogLevelsRefreshListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+	@Override
+	public void onApplicationEvent(EnvironmentChangeEvent event) {
+		ReactorSleuth.refreshLogLevels();
+	}
+
+}
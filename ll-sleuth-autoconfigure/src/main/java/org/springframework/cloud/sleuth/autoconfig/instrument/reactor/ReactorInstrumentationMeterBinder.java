@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.reactor;
+
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cloud.sleuth.instrument.reactor.ReactorInstrumentationCounters;
+
+/**
+ * Exports {@link ReactorInstrumentationCounters} as Micrometer meters.
+ */
+class ReactorInstrumentationMeterBinder implements MeterBinder {
+
+	private static final String CACHE_DESCRIPTION = "Publishers whose run style was looked up on assembly, "
+			+ "taken from the per class cache (hit) or scanned (miss)";
+
+	private static final String PUBLISHERS_DESCRIPTION = "Publishers the operator hook decorated or skipped, "
+			+ "with the reason of the skip";
+
+	private static final String SUBSCRIBERS_DESCRIPTION = "Subscribers of decorated publishers wrapped in a scope "
+			+ "passing subscriber, or left as is because there was no trace or they already pass the same parent";
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter
+				.builder("sleuth.reactor.decoration.cache", ReactorInstrumentationCounters.class,
+						c -> ReactorInstrumentationCounters.decorationCacheHits())
+				.tag("result", "hit").description(CACHE_DESCRIPTION)
+				.register(registry);
+		FunctionCounter
+				.builder("sleuth.reactor.decoration.cache", ReactorInstrumentationCounters.class,
+						c -> ReactorInstrumentationCounters.decorationCacheMisses())
+				.tag("result", "miss").description(CACHE_DESCRIPTION)
+				.register(registry);
+		publishers(registry, "decorated", "none", ReactorInstrumentationCounters::publishersDecorated);
+		publishers(registry, "skipped", "scalar_callable",
+				ReactorInstrumentationCounters::publishersSkippedScalarCallable);
+		publishers(registry, "skipped", "source_producer",
+				ReactorInstrumentationCounters::publishersSkippedSourceProducer);
+		publishers(registry, "skipped", "propagator", ReactorInstrumentationCounters::publishersSkippedPropagator);
+		subscribers(registry, "decorated", ReactorInstrumentationCounters::subscribersDecorated);
+		subscribers(registry, "no_trace", ReactorInstrumentationCounters::subscribersSkippedNoTrace);
+		subscribers(registry, "double_wrap_avoided", ReactorInstrumentationCounters::subscribersDoubleWrapAvoided);
+		FunctionCounter
+				.builder("sleuth.reactor.scope.enters", ReactorInstrumentationCounters.class,
+						c -> ReactorInstrumentationCounters.scopeEnters())
+				.description("Scopes opened to pass the tracing context to a signal or a task")
+				.register(registry);
+	}
+
+	private static void publishers(MeterRegistry registry, String result, String reason, LongSupplier count) {
+		FunctionCounter
+				.builder("sleuth.reactor.publishers", ReactorInstrumentationCounters.class, c -> count.getAsLong())
+				.tag("result", result).tag("reason", reason).description(PUBLISHERS_DESCRIPTION)
+				.register(registry);
+	}
+
+	private static void subscribers(MeterRegistry registry, String result, LongSupplier count) {
+		FunctionCounter
+				.builder("sleuth.reactor.subscribers", ReactorInstrumentationCounters.class, c -> count.getAsLong())
+				.tag("result", result).description(SUBSCRIBERS_DESCRIPTION)
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.reactor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.sleuth.instrument.reactor.ReactorInstrumentationType;
+
+/**
+ * Sleuth Reactor settings.
+ */
+@ConfigurationProperties("spring.sleuth.reactor")
+public class SleuthReactorProperties {
+
+	/**
+	 * When true enables instrumentation for reactor.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * How the tracing context is propagated through Reactor. Each type trades propagation
+	 * accuracy for per operator overhead, pick the cheapest one that is still correct for
+	 * the application.
+	 */
+	private ReactorInstrumentationType instrumentationType = ReactorInstrumentationType.ON_EACH;
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public ReactorInstrumentationType getInstrumentationType() {
+		return this.instrumentationType;
+	}
+
+	public void setInstrumentationType(ReactorInstrumentationType instrumentationType) {
+		this.instrumentationType = instrumentationType;
+	}
+
+}
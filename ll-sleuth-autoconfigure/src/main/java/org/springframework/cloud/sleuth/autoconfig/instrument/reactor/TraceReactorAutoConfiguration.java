@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.reactor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link org.springframework.boot.autoconfigure.EnableAutoConfiguration
+ * Auto-configuration} that instruments Reactor, the way the tracing context gets
+ * propagated is selected with {@code spring.sleuth.reactor.instrumentation-type}.
+ */
+@Configuration(proxyBeanMethods = false)
+// after the Spring Cloud LoggingRebinder, see LogLevelsRefreshListener
+@AutoConfigureAfter(name = "org.springframework.cloud.autoconfigure.RefreshAutoConfiguration")
+@ConditionalOnBean(Tracer.class)
+@ConditionalOnClass(Mono.class)
+@ConditionalOnProperty(value = "spring.sleuth.reactor.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SleuthReactorProperties.class)
+public class TraceReactorAutoConfiguration {
+
+	@Bean
+	static HookRegisteringBeanDefinitionRegistryPostProcessor traceHookRegisteringBeanDefinitionRegistryPostProcessor(
+			ConfigurableApplicationContext springContext) {
+		return new HookRegisteringBeanDefinitionRegistryPostProcessor(springContext);
+	}
+
+	// same conditions as the rebinder of the Spring Cloud RefreshAutoConfiguration
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(EnvironmentChangeEvent.class)
+	@ConditionalOnProperty(value = "spring.cloud.refresh.enabled", matchIfMissing = true)
+	static class TraceReactorLoggingConfiguration {
+
+		@Bean
+		LogLevelsRefreshListener traceReactorLogLevelsRefreshListener() {
+			return new LogLevelsRefreshListener();
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	static class TraceReactorMetricsConfiguration {
+
+		@Bean
+		ReactorInstrumentationMeterBinder reactorInstrumentationMeterBinder() {
+			return new ReactorInstrumentationMeterBinder();
+		}
+
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.web;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cloud.sleuth.instrument.web.HttpServerTimings;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+
+/**
+ * Records the exchanges traced by {@code TraceWebFilter} as {@value #METER_NAME} timers
+ * tagged with the route, the method and the status class ({@code 2xx}, ...). Methods
+ * other than the standard {@link HttpMethod}s are tagged {@code UNKNOWN}, as clients
+ * choose them freely. The timers are cached per tag values, so an exchange costs a map
+ * lookup and a record. Nothing is recorded until the binder is bound to a registry.
+ */
+class MicrometerHttpServerTimings implements HttpServerTimings, MeterBinder {
+
+	static final String METER_NAME = "sleuth.http.server.requests";
+
+	private static final String UNKNOWN = "UNKNOWN";
+
+	private static final String[] STATUS_CLASSES = { UNKNOWN, "1xx", "2xx", "3xx", "4xx", "5xx" };
+
+	private static final Set<String> METHODS = Arrays.stream(HttpMethod.values()).map(HttpMethod::name)
+			.collect(Collectors.toUnmodifiableSet());
+
+	private final boolean percentileHistogram;
+
+	private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+	@Nullable
+	private volatile MeterRegistry registry;
+
+	MicrometerHttpServerTimings(boolean percentileHistogram) {
+		this.percentileHistogram = percentileHistogram;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		this.timers.clear();
+	}
+
+	@Override
+	public long start() {
+		MeterRegistry registry = this.registry;
+		return registry != null ? registry.config().clock().monotonicTime() : 0L;
+	}
+
+	@Override
+	public void record(long start, @Nullable String route, String method, int statusCode) {
+		MeterRegistry registry = this.registry;
+		if (registry == null || start == 0L) {
+			return;
+		}
+		Clock clock = registry.config().clock();
+		TimerKey key = new TimerKey(route != null ? route : UNKNOWN, METHODS.contains(method) ? method : UNKNOWN,
+				statusClass(statusCode));
+		Timer timer = this.timers.get(key);
+		if (timer == null) {
+			timer = this.timers.computeIfAbsent(key, k -> register(registry, k));
+		}
+		timer.record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private Timer register(MeterRegistry registry, TimerKey key) {
+		return Timer.builder(METER_NAME).description("Server exchanges traced by the web filter")
+				.tag("route", key.route).tag("method", key.method).tag("status", key.status)
+				.publishPercentileHistogram(this.percentileHistogram).register(registry);
+	}
+
+	private static String statusClass(int statusCode) {
+		int statusClass = statusCode / 100;
+		return statusClass > 0 && statusClass < STATUS_CLASSES.length ? STATUS_CLASSES[statusClass] : UNKNOWN;
+	}
+
+	private static final class TimerKey {
+
+		final String route;
+
+		final String method;
+
+		// one of the STATUS_CLASSES constants, compared by identity
+		final String status;
+
+		final int hash;
+
+		TimerKey(String route, String method, String status) {
+			this.route = route;
+			this.method = method;
+			this.status = status;
+			this.hash = 31 * (31 * route.hashCode() + method.hashCode()) + status.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof TimerKey)) {
+				return false;
+			}
+			TimerKey other = (TimerKey) o;
+			return this.hash == other.hash && this.status == other.status && this.route.equals(other.route)
+					&& this.method.equals(other.method);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+	}
+
+}
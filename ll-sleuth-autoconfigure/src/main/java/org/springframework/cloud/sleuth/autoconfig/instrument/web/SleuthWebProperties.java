@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.web;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sleuth web settings.
+ */
+@ConfigurationProperties("spring.sleuth.web")
+public class SleuthWebProperties {
+
+	/**
+	 * Path patterns (e.g. {@code /actuator/**}) of the requests that are never traced.
+	 */
+	private List<String> skipPatterns = new ArrayList<>();
+
+	/**
+	 * Ratio of the sampled requests, between 0 and 1, by path pattern, applied by the
+	 * {@code httpServerSampler} bean to the requests without an inbound sampling
+	 * decision. The first matching pattern applies, patterns with slashes have to be set
+	 * in brackets, e.g.
+	 * {@code spring.sleuth.web.sample-rates.[/api/**]=0.1}.
+	 */
+	private Map<String, Float> sampleRates = new LinkedHashMap<>();
+
+	private final Timers timers = new Timers();
+
+	private final Streaming streaming = new Streaming();
+
+	public List<String> getSkipPatterns() {
+		return this.skipPatterns;
+	}
+
+	public void setSkipPatterns(List<String> skipPatterns) {
+		this.skipPatterns = skipPatterns;
+	}
+
+	public Map<String, Float> getSampleRates() {
+		return this.sampleRates;
+	}
+
+	public void setSampleRates(Map<String, Float> sampleRates) {
+		this.sampleRates = sampleRates;
+	}
+
+	public Timers getTimers() {
+		return this.timers;
+	}
+
+	public Streaming getStreaming() {
+		return this.streaming;
+	}
+
+	/**
+	 * Timers of the traced exchanges, recorded by the web filter.
+	 */
+	public static class Timers {
+
+		/**
+		 * When true the traced exchanges are recorded as timers tagged with the route,
+		 * the method and the status class. Needs Micrometer.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Whether the timers publish a percentile histogram.
+		 */
+		private boolean percentileHistogram = true;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public boolean isPercentileHistogram() {
+			return this.percentileHistogram;
+		}
+
+		public void setPercentileHistogram(boolean percentileHistogram) {
+			this.percentileHistogram = percentileHistogram;
+		}
+
+	}
+
+	/**
+	 * Tracing of responses written over time, e.g. server-sent events.
+	 */
+	public static class Streaming {
+
+		/**
+		 * Whether the server span gets an event when the response is committed, i.e. when
+		 * the first byte is written.
+		 */
+		private boolean firstByteEvent;
+
+		/**
+		 * When set, the response body is written in child spans of the server span, a
+		 * new one started for the first buffer written once the interval elapsed.
+		 */
+		private Duration segmentInterval;
+
+		public boolean isFirstByteEvent() {
+			return this.firstByteEvent;
+		}
+
+		public void setFirstByteEvent(boolean firstByteEvent) {
+			this.firstByteEvent = firstByteEvent;
+		}
+
+		public Duration getSegmentInterval() {
+			return this.segmentInterval;
+		}
+
+		public void setSegmentInterval(Duration segmentInterval) {
+			this.segmentInterval = segmentInterval;
+		}
+
+	}
+
+}
@@ -18,6 +18,7 @@ package org.springframework.cloud.sleuth.autoconfig.instrument.web;
 
 import io.micrometer.tracing.Tracer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
@@ -32,7 +33,8 @@ import org.springframework.context.annotation.Import;
 @Deprecated
 @Configuration(proxyBeanMethods = false)
 @ConditionalOnBean(Tracer.class)
-@Import({ TraceWebFluxConfiguration.class })
+@EnableConfigurationProperties(SleuthWebProperties.class)
+@Import({ TraceWebFluxConfiguration.class, TraceWebClientConfiguration.class })
 public class TraceWebAutoConfiguration {
 
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.web;
+
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.http.HttpClientHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.cloud.sleuth.instrument.web.client.TraceWebClientExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * {@link org.springframework.boot.autoconfigure.EnableAutoConfiguration
+ * Auto-configuration} enables tracing of the {@link WebClient} exchanges. The filter is
+ * added first to the {@link WebClient.Builder}s created from the Boot managed builder.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(WebClient.class)
+@ConditionalOnBean(HttpClientHandler.class)
+@ConditionalOnProperty(value = "spring.sleuth.web.client.enabled", matchIfMissing = true)
+class TraceWebClientConfiguration {
+
+	@Bean
+	TraceWebClientExchangeFilterFunction traceWebClientExchangeFilterFunction(Tracer tracer,
+			HttpClientHandler httpClientHandler) {
+		return new TraceWebClientExchangeFilterFunction(tracer, httpClientHandler);
+	}
+
+	@Bean
+	WebClientCustomizer traceWebClientCustomizer(TraceWebClientExchangeFilterFunction filterFunction) {
+		return builder -> builder.filters(filters -> {
+			if (!filters.contains(filterFunction)) {
+				filters.add(0, filterFunction);
+			}
+		});
+	}
+
+}
@@ -16,10 +16,20 @@
 
 package org.springframework.cloud.sleuth.autoconfig.instrument.web;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.SamplerFunction;
 import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.http.HttpRequest;
 import io.micrometer.tracing.http.HttpServerHandler;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cloud.sleuth.instrument.web.HttpServerTimings;
+import org.springframework.cloud.sleuth.instrument.web.TraceRequestRules;
+import org.springframework.cloud.sleuth.instrument.web.TraceStreamingRules;
 import org.springframework.cloud.sleuth.instrument.web.TraceWebFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -37,7 +47,36 @@ import org.springframework.context.annotation.Configuration;
 class TraceWebFluxConfiguration {
 
 	@Bean
-	TraceWebFilter traceFilter(Tracer tracer, HttpServerHandler httpServerHandler) {
-		return new TraceWebFilter(tracer, httpServerHandler);
+	@ConditionalOnMissingBean
+	TraceRequestRules traceRequestRules(SleuthWebProperties properties) {
+		return new TraceRequestRules(properties.getSkipPatterns(), properties.getSampleRates());
 	}
+
+	// to be set as the server sampler of the tracer's HTTP tracing, which builds the
+	// HttpServerHandler
+	@Bean
+	@ConditionalOnMissingBean(name = "httpServerSampler")
+	SamplerFunction<HttpRequest> httpServerSampler(TraceRequestRules rules) {
+		return rules.serverSampler();
+	}
+
+	@Bean
+	TraceWebFilter traceFilter(Tracer tracer, HttpServerHandler httpServerHandler, TraceRequestRules rules,
+			SleuthWebProperties properties, ObjectProvider<HttpServerTimings> timings) {
+		return new TraceWebFilter(tracer, httpServerHandler, rules, timings.getIfAvailable(), new TraceStreamingRules(
+				properties.getStreaming().isFirstByteEvent(), properties.getStreaming().getSegmentInterval()));
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnProperty("spring.sleuth.web.timers.enabled")
+	static class TraceWebFluxTimersConfiguration {
+
+		@Bean
+		MicrometerHttpServerTimings traceWebFilterTimings(SleuthWebProperties properties) {
+			return new MicrometerHttpServerTimings(properties.getTimers().isPercentileHistogram());
+		}
+
+	}
+
 }
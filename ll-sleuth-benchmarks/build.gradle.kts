@@ -0,0 +1,24 @@
+dependencies {
+    implementation(project(":ll-sleuth-instrumentation"))
+    implementation(project(":ll-sleuth-autoconfigure"))
+
+    implementation("io.micrometer:micrometer-core")
+    implementation("io.micrometer:micrometer-tracing")
+    implementation("io.micrometer:micrometer-tracing-bridge-brave")
+    implementation("io.zipkin.brave:brave-instrumentation-http")
+
+    implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework:spring-test")
+
+    implementation("org.openjdk.jmh:jmh-core:1.36")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.36")
+}
+
+// Usage: ./gradlew :ll-sleuth-benchmarks:jmh -PjmhArgs="ScopePassing -prof gc"
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks, arguments are passed through the jmhArgs project property."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = (project.findProperty("jmhArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
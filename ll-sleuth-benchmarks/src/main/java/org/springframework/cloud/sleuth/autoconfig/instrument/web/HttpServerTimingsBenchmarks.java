@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.instrument.web;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+import org.springframework.cloud.sleuth.instrument.web.TraceRequestRules;
+import org.springframework.cloud.sleuth.instrument.web.TraceStreamingRules;
+import org.springframework.cloud.sleuth.instrument.web.TraceWebFilter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Cost of the route timers recorded by {@code TraceWebFilter}.
+ * <ul>
+ * <li>{@code filter} - a traced request end to end, without timers ({@code NONE}), with
+ * timers ({@code TIMERS}) and with timers publishing a percentile histogram
+ * ({@code HISTOGRAM})</li>
+ * <li>{@code record} - {@link MicrometerHttpServerTimings#record} alone, the timer being
+ * cached</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpServerTimingsBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class TimingsState {
+
+		@Param({ "NONE", "TIMERS", "HISTOGRAM" })
+		public String mode;
+
+		BenchmarkTracing tracing;
+
+		MicrometerHttpServerTimings timings;
+
+		TraceWebFilter filter;
+
+		WebFilterChain chain;
+
+		@Setup(Level.Trial)
+		@SuppressWarnings("deprecation")
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			this.timings = new MicrometerHttpServerTimings("HISTOGRAM".equals(this.mode));
+			this.timings.bindTo(new SimpleMeterRegistry());
+			PathPattern pattern = PathPatternParser.defaultInstance.parse("/api/payments/{id}");
+			this.chain = exchange -> {
+				exchange.getAttributes().put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+				return Mono.empty();
+			};
+			this.filter = new TraceWebFilter(this.tracing.tracer, this.tracing.httpServerHandler,
+					new TraceRequestRules(List.of(), Map.of()), "NONE".equals(this.mode) ? null : this.timings,
+					new TraceStreamingRules(false, null));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.tracing.close();
+		}
+
+	}
+
+	@Benchmark
+	public Void filter(TimingsState state) {
+		return state.filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/payments/42")),
+				state.chain).block();
+	}
+
+	@Benchmark
+	public void record(TimingsState state) {
+		state.timings.record(state.timings.start(), "/api/payments/{id}", "GET", 200);
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.http.HttpTracing;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.sampler.Sampler;
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveBaggageManager;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveHttpServerHandler;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import io.micrometer.tracing.http.HttpServerHandler;
+
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * Brave backed tracing fixture shared by the benchmarks. Finished spans are dropped so
+ * that only the instrumentation cost is measured.
+ */
+public final class BenchmarkTracing implements AutoCloseable {
+
+	public final Tracing tracing;
+
+	public final CurrentTraceContext currentTraceContext;
+
+	public final Tracer tracer;
+
+	public final HttpServerHandler httpServerHandler;
+
+	public final GenericApplicationContext springContext;
+
+	public BenchmarkTracing() {
+		ThreadLocalCurrentTraceContext braveCurrentTraceContext = ThreadLocalCurrentTraceContext.newBuilder().build();
+		this.tracing = Tracing.newBuilder().currentTraceContext(braveCurrentTraceContext)
+				.sampler(Sampler.ALWAYS_SAMPLE).addSpanHandler(new SpanHandler() {
+					@Override
+					public boolean end(brave.propagation.TraceContext context, MutableSpan span, Cause cause) {
+						return true;
+					}
+				}).build();
+		this.currentTraceContext = new BraveCurrentTraceContext(braveCurrentTraceContext);
+		this.tracer = new BraveTracer(this.tracing.tracer(), this.currentTraceContext, new BraveBaggageManager());
+		this.httpServerHandler = new BraveHttpServerHandler(
+				brave.http.HttpServerHandler.create(HttpTracing.create(this.tracing)));
+		this.springContext = new GenericApplicationContext();
+		this.springContext.registerBean(Tracer.class, () -> this.tracer);
+		this.springContext.registerBean(CurrentTraceContext.class, () -> this.currentTraceContext);
+		this.springContext.refresh();
+	}
+
+	/**
+	 * @return a new started span, the caller is responsible for ending it.
+	 */
+	public Span startSpan() {
+		return this.tracer.nextSpan().name("benchmark").start();
+	}
+
+	@Override
+	public void close() {
+		this.springContext.close();
+		this.tracing.close();
+	}
+
+}
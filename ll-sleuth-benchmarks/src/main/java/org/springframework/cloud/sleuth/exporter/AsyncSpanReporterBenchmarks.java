@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.sleuth.exporter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.brave.bridge.BraveFinishedSpan;
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanReporter;
+import brave.handler.MutableSpan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of reporting a finished span for the thread that finished it, with a reporter
+ * that burns some CPU per span. {@code SYNC} calls the reporter directly, {@code ASYNC}
+ * goes through an {@link AsyncSpanReporter} with the {@code DROP} policy, 4 threads
+ * report concurrently.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AsyncSpanReporterBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class ReporterState {
+
+		@Param({ "SYNC", "ASYNC" })
+		public String mode;
+
+		SpanReporter reporter;
+
+		FinishedSpan span;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			SpanReporter slow = span -> Blackhole.consumeCPU(2000);
+			this.reporter = "SYNC".equals(this.mode) ? slow
+					: new AsyncSpanReporter(slow, 8192, 256, Duration.ofMillis(10),
+							AsyncSpanReporter.OverflowPolicy.DROP);
+			MutableSpan span = new MutableSpan();
+			span.name("benchmark");
+			this.span = new BraveFinishedSpan(span);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			if (this.reporter instanceof AsyncSpanReporter) {
+				AsyncSpanReporter reporter = (AsyncSpanReporter) this.reporter;
+				System.out.println("\nreported " + reporter.reportedSpans() + ", dropped " + reporter.droppedSpans());
+			}
+			this.reporter.close();
+		}
+
+	}
+
+	@Benchmark
+	public void report(ReporterState state) {
+		state.reporter.report(state.span);
+	}
+
+}
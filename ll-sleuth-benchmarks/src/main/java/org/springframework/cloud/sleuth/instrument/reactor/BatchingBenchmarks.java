@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+
+/**
+ * {@code buffer(100)} over 1000 elements signalled in a trace, counting the elements of
+ * the batches.
+ * <ul>
+ * <li>{@code BASELINE} - {@link Flux#buffer(int)}</li>
+ * <li>{@code TRACED} - {@link TraceBatchOperators#buffer}, one batch span per batch</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchingBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class BatchingState {
+
+		@Param({ "BASELINE", "TRACED" })
+		public String mode;
+
+		BenchmarkTracing tracing;
+
+		Span span;
+
+		Flux<List<Integer>> batches;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			this.span = this.tracing.startSpan();
+			Flux<Integer> elements = Flux.range(0, 1000);
+			this.batches = "TRACED".equals(this.mode)
+					? elements.transform(TraceBatchOperators.buffer(this.tracing.tracer, "batch", 100))
+					: elements.buffer(100);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.span.end();
+			this.tracing.close();
+		}
+
+	}
+
+	@Benchmark
+	public Integer batches(BatchingState state) {
+		try (Tracer.SpanInScope ws = state.tracing.tracer.withSpan(state.span)) {
+			return state.batches.map(List::size).reduce(0, Integer::sum).block();
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+
+/**
+ * A blocking call bridged with {@code fromCallable} and {@code subscribeOn} on a
+ * bounded elastic scheduler, followed by a {@code map}, in a trace.
+ * <ul>
+ * <li>{@code BASELINE} - no hook, no propagation</li>
+ * <li>{@code HOOK} - {@code ON_EACH} hooks decorate the operators</li>
+ * <li>{@code SCHEDULER} - no hook, {@link TraceContextScheduler#fromCallable}</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockingBridgeBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class BridgeState {
+
+		@Param({ "BASELINE", "HOOK", "SCHEDULER" })
+		public String mode;
+
+		BenchmarkTracing tracing;
+
+		Span span;
+
+		Scheduler scheduler;
+
+		TraceContextScheduler traceContextScheduler;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			if ("HOOK".equals(this.mode)) {
+				ReactorSleuth.installHooks(this.tracing.springContext, ReactorInstrumentationType.ON_EACH);
+			}
+			this.scheduler = Schedulers.newBoundedElastic(4, 1000, "benchmark");
+			this.traceContextScheduler = new TraceContextScheduler(this.scheduler, this.tracing.currentTraceContext);
+			this.span = this.tracing.startSpan();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.scheduler.dispose();
+			ReactorSleuth.resetHooks();
+			this.span.end();
+			this.tracing.close();
+		}
+
+	}
+
+	@Benchmark
+	public Integer bridge(BridgeState state) {
+		try (Tracer.SpanInScope ws = state.tracing.tracer.withSpan(state.span)) {
+			Mono<Integer> call = "SCHEDULER".equals(state.mode) ? state.traceContextScheduler.fromCallable(() -> 42)
+					: Mono.fromCallable(() -> 42).subscribeOn(state.scheduler);
+			return call.map(i -> i + 1).block();
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.micrometer.tracing.Span;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+
+/**
+ * Compares the throughput of a traced {@code range -> publishOn -> map -> filter}
+ * pipeline when every stage is decorated with the {@link ScopePassingSpanSubscriber}
+ * that negotiates no fusion ({@code UNFUSED}) and with the
+ * {@link ScopePassingSpanFuseableSubscriber} that lets {@code publishOn} fuse with
+ * {@code range} ({@code FUSED}). {@code BASELINE} is the same pipeline without decoration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FusionBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class PipelineState {
+
+		@Param({ "BASELINE", "UNFUSED", "FUSED" })
+		public String mode;
+
+		@Param({ "1000" })
+		public int elements;
+
+		BenchmarkTracing tracing;
+
+		Span span;
+
+		Function<Flux<Integer>, Publisher<Integer>> decorator;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			this.span = this.tracing.startSpan();
+			if ("BASELINE".equals(this.mode)) {
+				this.decorator = flux -> flux;
+			}
+			else {
+				boolean fused = "FUSED".equals(this.mode);
+				this.decorator = flux -> flux.transform(Operators.<Integer, Integer>liftPublisher((p, sub) -> fused
+						? new ScopePassingSpanFuseableSubscriber<>(sub, Context.empty(),
+								this.tracing.currentTraceContext, this.span.context())
+						: new ScopePassingSpanSubscriber<>(sub, Context.empty(), this.tracing.currentTraceContext,
+								this.span.context())));
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.span.end();
+			this.tracing.close();
+		}
+
+		Flux<Integer> decorate(Flux<Integer> flux) {
+			return Flux.from(this.decorator.apply(flux));
+		}
+
+	}
+
+	@Benchmark
+	public void pipeline(PipelineState state, Blackhole blackhole) {
+		Flux<Integer> flux = state.decorate(Flux.range(0, state.elements));
+		flux = state.decorate(flux.publishOn(Schedulers.immediate()));
+		flux = state.decorate(flux.map(i -> i + 1));
+		flux = state.decorate(flux.filter(i -> (i & 1) == 0));
+		flux.subscribe(blackhole::consume);
+	}
+
+}
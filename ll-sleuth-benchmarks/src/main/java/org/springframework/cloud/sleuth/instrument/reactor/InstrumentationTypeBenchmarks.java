@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+
+/**
+ * Compares the {@link ReactorInstrumentationType}s on traced chains. {@code BASELINE}
+ * installs no hook.
+ * <ul>
+ * <li>{@code hops} - a chain with real thread switches ({@code subscribeOn},
+ * {@code publishOn} and {@code flatMap} over {@code subscribeOn})</li>
+ * <li>{@code deepChain} - a deep chain of {@code publishOn} on the immediate scheduler
+ * and {@code map}, where the per operator decoration cost dominates</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationTypeBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class TypeState {
+
+		@Param({ "BASELINE", "ON_EACH", "ON_LAST", "DECORATE_QUEUES" })
+		public String type;
+
+		@Param({ "20" })
+		public int depth;
+
+		@Param({ "100" })
+		public int elements;
+
+		BenchmarkTracing tracing;
+
+		Span span;
+
+		Scheduler scheduler;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			if (!"BASELINE".equals(this.type)) {
+				ReactorSleuth.installHooks(this.tracing.springContext, ReactorInstrumentationType.valueOf(this.type));
+			}
+			this.scheduler = Schedulers.newParallel("benchmark", 2);
+			this.span = this.tracing.startSpan();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.scheduler.dispose();
+			ReactorSleuth.resetHooks();
+			this.span.end();
+			this.tracing.close();
+		}
+
+	}
+
+	@Benchmark
+	public Integer hops(TypeState state) {
+		try (Tracer.SpanInScope ws = state.tracing.tracer.withSpan(state.span)) {
+			return Flux.range(0, state.elements).subscribeOn(state.scheduler).publishOn(state.scheduler)
+					.map(i -> i + 1).flatMap(i -> Mono.just(i).subscribeOn(state.scheduler)).map(i -> i * 2)
+					.reduce(0, Integer::sum).block();
+		}
+	}
+
+	@Benchmark
+	public Integer deepChain(TypeState state) {
+		try (Tracer.SpanInScope ws = state.tracing.tracer.withSpan(state.span)) {
+			Flux<Integer> flux = Flux.range(0, state.elements);
+			for (int i = 0; i < state.depth; i++) {
+				flux = flux.publishOn(Schedulers.immediate()).map(j -> j + 1);
+			}
+			return flux.reduce(0, Integer::sum).block();
+		}
+	}
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+
+/**
+ * Measures the cost of the ON_EACH scope passing instrumentation, both per assembled
+ * chain and per signal.
+ * <ul>
+ * <li>{@code BASELINE} - no hook installed, the same chain without instrumentation</li>
+ * <li>{@code HOOK_NO_TRACE} - hook installed, but there is no trace context in scope
+ * (tracing off)</li>
+ * <li>{@code HOOK_TRACED} - hook installed and the chain is subscribed within a span
+ * (tracing on)</li>
+ * </ul>
+ * Run with {@code -prof gc} to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactorSleuthBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class ChainState {
+
+		@Param({ "BASELINE", "HOOK_NO_TRACE", "HOOK_TRACED" })
+		public String mode;
+
+		/**
+		 * Number of {@code publishOn(...).map(...)} pairs appended to the source.
+		 */
+		@Param({ "1", "5", "20" })
+		public int depth;
+
+		/**
+		 * Number of elements emitted by the {@link Flux} chain.
+		 */
+		@Param({ "100" })
+		public int elements;
+
+		BenchmarkTracing tracing;
+
+		Span span;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			if (!"BASELINE".equals(this.mode)) {
+				ReactorSleuth.installHooks(this.tracing.springContext, ReactorInstrumentationType.ON_EACH);
+			}
+			if ("HOOK_TRACED".equals(this.mode)) {
+				this.span = this.tracing.startSpan();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			ReactorSleuth.resetHooks();
+			if (this.span != null) {
+				this.span.end();
+			}
+			this.tracing.close();
+		}
+
+		Tracer.SpanInScope maybeInScope() {
+			return this.span != null ? this.tracing.tracer.withSpan(this.span) : null;
+		}
+
+	}
+
+	@State(Scope.Benchmark)
+	public static class SignalState {
+
+		@Param({ "BASELINE", "SCOPE_PASSING" })
+		public String mode;
+
+		BenchmarkTracing tracing;
+
+		Span span;
+
+		CoreSubscriber<Integer> subscriber;
+
+		Subscription subscription;
+
+		@Setup(Level.Trial)
+		public void setup(Blackhole blackhole) {
+			this.tracing = new BenchmarkTracing();
+			this.span = this.tracing.startSpan();
+			CoreSubscriber<Integer> actual = new BlackholeSubscriber(blackhole);
+			this.subscriber = "BASELINE".equals(this.mode) ? actual : new ScopePassingSpanSubscriber<>(actual,
+					Context.empty(), this.tracing.currentTraceContext, this.span.context());
+			this.subscriber.onSubscribe(NoopSubscription.INSTANCE);
+			this.subscription = "BASELINE".equals(this.mode) ? NoopSubscription.INSTANCE
+					: (Subscription) this.subscriber;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.span.end();
+			this.tracing.close();
+		}
+
+	}
+
+	@Benchmark
+	public void fluxChain(ChainState state, Blackhole blackhole) {
+		Tracer.SpanInScope ws = state.maybeInScope();
+		try {
+			Flux<Integer> flux = Flux.range(0, state.elements);
+			for (int i = 0; i < state.depth; i++) {
+				flux = flux.publishOn(Schedulers.immediate()).map(ReactorSleuthBenchmarks::increment);
+			}
+			flux.subscribe(blackhole::consume);
+		}
+		finally {
+			if (ws != null) {
+				ws.close();
+			}
+		}
+	}
+
+	@Benchmark
+	public void monoChain(ChainState state, Blackhole blackhole) {
+		Tracer.SpanInScope ws = state.maybeInScope();
+		try {
+			Mono<Integer> mono = Mono.fromCallable(() -> 0);
+			for (int i = 0; i < state.depth; i++) {
+				mono = mono.publishOn(Schedulers.immediate()).map(ReactorSleuthBenchmarks::increment);
+			}
+			mono.subscribe(blackhole::consume);
+		}
+		finally {
+			if (ws != null) {
+				ws.close();
+			}
+		}
+	}
+
+	@Benchmark
+	public void onNext(SignalState state) {
+		state.subscriber.onNext(1);
+	}
+
+	@Benchmark
+	public void request(SignalState state) {
+		state.subscription.request(1);
+	}
+
+	static Integer increment(Integer i) {
+		return i + 1;
+	}
+
+	static final class BlackholeSubscriber implements CoreSubscriber<Integer> {
+
+		final Blackhole blackhole;
+
+		BlackholeSubscriber(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			this.blackhole.consume(s);
+		}
+
+		@Override
+		public void onNext(Integer integer) {
+			this.blackhole.consume(integer);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			this.blackhole.consume(t);
+		}
+
+		@Override
+		public void onComplete() {
+		}
+
+	}
+
+	enum NoopSubscription implements Subscription {
+
+		INSTANCE;
+
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public void cancel() {
+		}
+
+	}
+
+}
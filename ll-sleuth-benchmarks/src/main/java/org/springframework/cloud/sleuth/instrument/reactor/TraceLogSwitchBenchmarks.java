@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the five trace level checks of a decorated subscription, with trace disabled.
+ * <ul>
+ * <li>{@code log} - {@link Log#isTraceEnabled()} through the logging bridge</li>
+ * <li>{@code traceLogSwitch} - a {@link TraceLogSwitch} read through a
+ * {@code static final} invoker</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraceLogSwitchBenchmarks {
+
+	private static final Log log = LogFactory.getLog(ReactorSleuth.class);
+
+	private static final MethodHandle TRACE = TraceLogSwitch.of(log).invoker();
+
+	int counter;
+
+	@Benchmark
+	public int log() {
+		for (int i = 0; i < 5; i++) {
+			if (log.isTraceEnabled()) {
+				this.counter++;
+			}
+		}
+		return this.counter;
+	}
+
+	@Benchmark
+	public int traceLogSwitch() {
+		for (int i = 0; i < 5; i++) {
+			if (TraceLogSwitch.isEnabled(TRACE)) {
+				this.counter++;
+			}
+		}
+		return this.counter;
+	}
+
+}
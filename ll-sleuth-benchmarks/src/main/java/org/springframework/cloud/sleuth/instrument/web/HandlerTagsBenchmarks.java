@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Cost of the controller class and method tag values at span termination.
+ * <ul>
+ * <li>{@code computed} - read from the {@link HandlerMethod} on every request, as
+ * {@link TraceWebFilter} does</li>
+ * <li>{@code cachedSameInstance} - looked up in a cache keyed by the
+ * {@link HandlerMethod}</li>
+ * <li>{@code cachedResolvedInstance} - same cache, looked up with an equal but distinct
+ * {@link HandlerMethod}, which is what the handler mapping hands out once it resolved the
+ * bean by name</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerTagsBenchmarks {
+
+	final TraceWebFilterBenchmarks.PaymentController controller = new TraceWebFilterBenchmarks.PaymentController();
+
+	final HandlerMethod handler = new HandlerMethod(this.controller,
+			ReflectionUtils.findMethod(TraceWebFilterBenchmarks.PaymentController.class, "payment", String.class));
+
+	final HandlerMethod resolvedHandler = new HandlerMethod(this.controller, this.handler.getMethod());
+
+	final Map<HandlerMethod, String[]> cache = new ConcurrentHashMap<>();
+
+	@Benchmark
+	public void computed(Blackhole blackhole) {
+		blackhole.consume(this.handler.getMethod().getName());
+		blackhole.consume(this.handler.getBeanType().getSimpleName());
+	}
+
+	@Benchmark
+	public void cachedSameInstance(Blackhole blackhole) {
+		String[] tags = this.cache.computeIfAbsent(this.handler, HandlerTagsBenchmarks::tags);
+		blackhole.consume(tags[0]);
+		blackhole.consume(tags[1]);
+	}
+
+	@Benchmark
+	public void cachedResolvedInstance(Blackhole blackhole) {
+		String[] tags = this.cache.computeIfAbsent(this.resolvedHandler, HandlerTagsBenchmarks::tags);
+		blackhole.consume(tags[0]);
+		blackhole.consume(tags[1]);
+	}
+
+	private static String[] tags(HandlerMethod handlerMethod) {
+		return new String[] { handlerMethod.getMethod().getName(), handlerMethod.getBeanType().getSimpleName() };
+	}
+
+}
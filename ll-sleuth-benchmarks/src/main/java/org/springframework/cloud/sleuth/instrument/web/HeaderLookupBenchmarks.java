@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.http.HttpServerRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Reads the B3 multi headers of a request backed by Netty headers, the way the
+ * propagator does on extraction.
+ * <ul>
+ * <li>{@code generic} - {@link TraceWebFilter.WrappedRequest}, through the read only
+ * Spring {@link HttpHeaders} over the {@code NettyHeadersAdapter}, as for a
+ * {@code ReactorServerHttpRequest}</li>
+ * <li>{@code netty} - {@link NettyWrappedRequest}, from the Netty headers directly</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeaderLookupBenchmarks {
+
+	static final String[] NAMES = { "b3", "X-B3-TraceId", "X-B3-SpanId", "X-B3-ParentSpanId", "X-B3-Sampled",
+			"X-B3-Flags" };
+
+	HttpServerRequest generic;
+
+	HttpServerRequest netty;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		DefaultHttpHeaders nettyHeaders = new DefaultHttpHeaders();
+		nettyHeaders.add("Host", "localhost:8080").add("User-Agent", "benchmark").add("Accept", "application/json")
+				.add("Accept-Encoding", "gzip").add("Connection", "keep-alive")
+				.add("X-B3-TraceId", "463ac35c9f6413ad48485a3953bb6124").add("X-B3-SpanId", "a2fb4a1d1a96d312")
+				.add("X-B3-Sampled", "1");
+		Constructor<?> adapter = Class.forName("org.springframework.http.server.reactive.NettyHeadersAdapter")
+				.getDeclaredConstructor(io.netty.handler.codec.http.HttpHeaders.class);
+		ReflectionUtils.makeAccessible(adapter);
+		HttpHeaders headers = HttpHeaders
+				.readOnlyHttpHeaders(new HttpHeaders((MultiValueMap<String, String>) adapter.newInstance(nettyHeaders)));
+		ServerHttpRequest request = new ServerHttpRequestDecorator(MockServerHttpRequest.get("/").build()) {
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+		this.generic = new TraceWebFilter.WrappedRequest(request);
+		this.netty = new NettyWrappedRequest(request, nettyHeaders);
+	}
+
+	@Benchmark
+	public void generic(Blackhole blackhole) {
+		for (String name : NAMES) {
+			blackhole.consume(this.generic.header(name));
+		}
+	}
+
+	@Benchmark
+	public void netty(Blackhole blackhole) {
+		for (String name : NAMES) {
+			blackhole.consume(this.netty.header(name));
+		}
+	}
+
+}
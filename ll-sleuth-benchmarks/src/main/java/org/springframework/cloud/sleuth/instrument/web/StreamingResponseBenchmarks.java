@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * A traced request whose handler writes a body of 100 buffers with
+ * {@code writeAndFlushWith}, one buffer per flush like server-sent events.
+ * <ul>
+ * <li>{@code NONE} - default streaming rules</li>
+ * <li>{@code FIRST_BYTE} - the server span gets the first byte event</li>
+ * <li>{@code SEGMENTS} - the body is written in segment spans, the interval is long
+ * enough for a single one</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingResponseBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class StreamingState {
+
+		@Param({ "NONE", "FIRST_BYTE", "SEGMENTS" })
+		public String mode;
+
+		BenchmarkTracing tracing;
+
+		TraceWebFilter filter;
+
+		WebFilterChain chain;
+
+		@Setup(Level.Trial)
+		@SuppressWarnings("deprecation")
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			TraceStreamingRules streaming = new TraceStreamingRules("FIRST_BYTE".equals(this.mode),
+					"SEGMENTS".equals(this.mode) ? Duration.ofHours(1) : null);
+			this.filter = new TraceWebFilter(this.tracing.tracer, this.tracing.httpServerHandler,
+					TraceRequestRules.NONE, null, streaming);
+			byte[] event = "data: {\"id\":42}\n\n".getBytes();
+			this.chain = exchange -> exchange.getResponse().writeAndFlushWith(Flux.range(0, 100)
+					.map(i -> Flux.<DataBuffer>just(DefaultDataBufferFactory.sharedInstance.wrap(event))));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.tracing.close();
+		}
+
+	}
+
+	@Benchmark
+	public Void stream(StreamingState state) {
+		return state.filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/events")), state.chain)
+				.block();
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.sleuth.benchmarks.BenchmarkTracing;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Measures {@link TraceWebFilter#filter(ServerWebExchange, WebFilterChain)} end to end,
+ * from the request entering the filter to the span being finished.
+ * <ul>
+ * <li>{@code BASELINE} - the chain is invoked without the filter</li>
+ * <li>{@code NO_INBOUND_TRACE} - the filter starts a new trace</li>
+ * <li>{@code INBOUND_TRACE} - the filter continues a B3 trace sent by the client</li>
+ * <li>{@code SKIPPED} - the request matches a skip pattern of the filter</li>
+ * </ul>
+ * The chain sets the handler and pattern attributes the way a handler mapping does, so
+ * that the span is tagged with the controller class, method and route. Run with
+ * {@code -prof gc} to see the allocation rate per request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceWebFilterBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class FilterState {
+
+		@Param({ "BASELINE", "NO_INBOUND_TRACE", "INBOUND_TRACE", "SKIPPED" })
+		public String mode;
+
+		BenchmarkTracing tracing;
+
+		WebFilter filter;
+
+		WebFilterChain chain;
+
+		@Setup(Level.Trial)
+		@SuppressWarnings("deprecation")
+		public void setup() {
+			this.tracing = new BenchmarkTracing();
+			HandlerMethod handler = new HandlerMethod(new PaymentController(),
+					ReflectionUtils.findMethod(PaymentController.class, "payment", String.class));
+			PathPattern pattern = PathPatternParser.defaultInstance.parse("/api/payments/{id}");
+			this.chain = exchange -> {
+				exchange.getAttributes().put(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+				exchange.getAttributes().put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+				return Mono.empty();
+			};
+			if ("BASELINE".equals(this.mode)) {
+				this.filter = (exchange, chain) -> chain.filter(exchange);
+			}
+			else {
+				TraceRequestRules rules = "SKIPPED".equals(this.mode)
+						? new TraceRequestRules(List.of("/actuator/**", "/api/payments/**"), Map.of())
+						: TraceRequestRules.NONE;
+				this.filter = new TraceWebFilter(this.tracing.tracer, this.tracing.httpServerHandler, rules, null,
+						TraceStreamingRules.NONE);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.tracing.close();
+		}
+
+		ServerWebExchange exchange() {
+			MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/payments/42");
+			if ("INBOUND_TRACE".equals(this.mode)) {
+				request.header("b3", "463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-1");
+			}
+			return MockServerWebExchange.from(request);
+		}
+
+	}
+
+	static class PaymentController {
+
+		String payment(String id) {
+			return id;
+		}
+
+	}
+
+	@Benchmark
+	public Void filter(FilterState state) {
+		return state.filter.filter(state.exchange(), state.chain).block();
+	}
+
+}
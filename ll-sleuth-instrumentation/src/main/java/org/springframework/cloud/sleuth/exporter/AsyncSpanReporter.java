@@ -0,0 +1,230 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.exporter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanReporter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A {@link SpanReporter} stage that takes finished spans off the thread that finished
+ * them. {@link #report(FinishedSpan)} only offers the span to a bounded lock-free ring
+ * buffer; a single reporter thread drains the buffer in batches and hands the spans to
+ * the delegate. A slow delegate therefore does not block the event loop, when it falls
+ * behind the {@link OverflowPolicy} decides what happens to the spans that do not fit.
+ * <p>
+ * The reporter thread is started by the constructor and stopped by {@link #stop()}, which
+ * reports the buffered spans and leaves the delegate open, or {@link #close()}, which
+ * closes the delegate too. Spans reported once the reporter is stopped are reported by
+ * the calling thread.
+ */
+public final class AsyncSpanReporter implements SpanReporter {
+
+	private static final Log log = LogFactory.getLog(AsyncSpanReporter.class);
+
+	/**
+	 * What to do with a span when the buffer is full.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * The span is dropped and counted.
+		 */
+		DROP,
+
+		/**
+		 * The span is reported by the calling thread, nothing is lost but the caller
+		 * pays for the delegate.
+		 */
+		REPORT_ON_CALLER
+
+	}
+
+	private final SpanReporter delegate;
+
+	private final MpscRingBuffer<FinishedSpan> buffer;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final int batchSize;
+
+	private final long flushIntervalNanos;
+
+	private final LongAdder reported = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final Thread reporterThread;
+
+	private volatile boolean closed;
+
+	// the buffer is drained by the callers once the reporter thread drained it for the
+	// last time, one at a time
+	private final Object closeLock = new Object();
+
+	// guarded by closeLock
+	private boolean finalDrainDone;
+
+	/**
+	 * @param delegate reporter the spans are handed to on the reporter thread
+	 * @param capacity number of spans the buffer holds, rounded up to a power of two
+	 * @param batchSize max number of spans drained at once
+	 * @param flushInterval how long the reporter thread waits when the buffer is empty
+	 * @param overflowPolicy what to do when the buffer is full
+	 */
+	public AsyncSpanReporter(SpanReporter delegate, int capacity, int batchSize, Duration flushInterval,
+			OverflowPolicy overflowPolicy) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive but was [" + batchSize + "]");
+		}
+		this.delegate = delegate;
+		this.buffer = new MpscRingBuffer<>(capacity);
+		this.batchSize = batchSize;
+		this.flushIntervalNanos = flushInterval.toNanos();
+		this.overflowPolicy = overflowPolicy;
+		this.reporterThread = new Thread(this::drainLoop, "sleuth-span-reporter");
+		this.reporterThread.setDaemon(true);
+		this.reporterThread.start();
+	}
+
+	@Override
+	public void report(FinishedSpan span) {
+		if (this.buffer.offer(span)) {
+			if (this.closed) {
+				drainAfterStop();
+			}
+			return;
+		}
+		if (this.overflowPolicy == OverflowPolicy.REPORT_ON_CALLER) {
+			reportToDelegate(span);
+		}
+		else {
+			this.dropped.increment();
+			if (log.isTraceEnabled()) {
+				log.trace("Span reporter buffer is full, dropped [" + span + "]");
+			}
+		}
+	}
+
+	private void drainLoop() {
+		while (!this.closed) {
+			if (this.buffer.drain(this::reportToDelegate, this.batchSize) == 0) {
+				LockSupport.parkNanos(this, this.flushIntervalNanos);
+			}
+		}
+		synchronized (this.closeLock) {
+			drainAll();
+			this.finalDrainDone = true;
+		}
+	}
+
+	/**
+	 * Reports a span offered while or after the reporter was stopped, unless the
+	 * reporter thread still has its final drain to do.
+	 */
+	private void drainAfterStop() {
+		synchronized (this.closeLock) {
+			if (this.finalDrainDone) {
+				drainAll();
+			}
+		}
+	}
+
+	private void drainAll() {
+		while (this.buffer.drain(this::reportToDelegate, this.batchSize) > 0) {
+			// report what was buffered before the stop
+		}
+	}
+
+	private void reportToDelegate(FinishedSpan span) {
+		try {
+			this.delegate.report(span);
+			this.reported.increment();
+		}
+		catch (RuntimeException ex) {
+			this.dropped.increment();
+			if (log.isDebugEnabled()) {
+				log.debug("Exception reporting span [" + span + "]", ex);
+			}
+		}
+	}
+
+	/**
+	 * @return approximate number of spans waiting in the buffer
+	 */
+	public int queueDepth() {
+		return this.buffer.size();
+	}
+
+	/**
+	 * @return number of spans the buffer holds
+	 */
+	public int capacity() {
+		return this.buffer.capacity();
+	}
+
+	/**
+	 * @return number of spans handed to the delegate
+	 */
+	public long reportedSpans() {
+		return this.reported.sum();
+	}
+
+	/**
+	 * @return number of spans dropped because the buffer was full or the delegate failed
+	 */
+	public long droppedSpans() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * @return the reporter the spans are handed to
+	 */
+	public SpanReporter getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * Reports the buffered spans and stops the reporter thread, waiting for it at most 5
+	 * seconds. The delegate is left open.
+	 * @throws InterruptedException if interrupted while waiting for the reporter thread
+	 */
+	public void stop() throws InterruptedException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		LockSupport.unpark(this.reporterThread);
+		this.reporterThread.join(TimeUnit.SECONDS.toMillis(5));
+	}
+
+	/**
+	 * Stops the reporter, see {@link #stop()}, and closes the delegate.
+	 */
+	@Override
+	public void close() throws Exception {
+		stop();
+		this.delegate.close();
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.exporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanReporter;
+
+/**
+ * A {@link SpanReporter} that keeps the reported spans in memory, meant for tests (e.g.
+ * as the delegate of an {@link AsyncSpanReporter}).
+ */
+public final class InMemorySpanReporter implements SpanReporter {
+
+	private final ConcurrentLinkedQueue<FinishedSpan> spans = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public void report(FinishedSpan span) {
+		this.spans.add(span);
+	}
+
+	/**
+	 * @return the spans reported so far, in reporting order
+	 */
+	public List<FinishedSpan> spans() {
+		return new ArrayList<>(this.spans);
+	}
+
+	/**
+	 * Forgets the reported spans.
+	 */
+	public void clear() {
+		this.spans.clear();
+	}
+
+}
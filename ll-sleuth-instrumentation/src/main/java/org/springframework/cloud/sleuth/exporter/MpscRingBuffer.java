@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.exporter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, lock-free, multi producer / single consumer ring buffer. Every slot carries a
+ * sequence number (D. Vyukov's bounded queue): producers claim a position with a CAS on
+ * the tail and publish the element by advancing the slot sequence, the single consumer
+ * frees a slot by advancing its sequence by the capacity. Offering to a full buffer fails
+ * instead of waiting.
+ *
+ * @param <E> element type
+ */
+final class MpscRingBuffer<E> {
+
+	private final Object[] elements;
+
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	// only written by the consumer, read by anyone for the size
+	private final AtomicLong head = new AtomicLong();
+
+	MpscRingBuffer(int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2 but was [" + capacity + "]");
+		}
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.elements = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.mask = size - 1;
+	}
+
+	int capacity() {
+		return this.elements.length;
+	}
+
+	/**
+	 * @param element element to add
+	 * @return {@code false} if the buffer is full
+	 */
+	boolean offer(E element) {
+		long position = this.tail.get();
+		for (;;) {
+			int index = (int) (position & this.mask);
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.elements[index] = element;
+					this.sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = this.tail.get();
+			}
+			else if (difference < 0) {
+				return false;
+			}
+			else {
+				position = this.tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes up to {@code limit} elements, only to be called by the consumer thread.
+	 * @param consumer receives the removed elements
+	 * @param limit max number of elements to remove
+	 * @return number of removed elements
+	 */
+	@SuppressWarnings("unchecked")
+	int drain(Consumer<? super E> consumer, int limit) {
+		long position = this.head.get();
+		int drained = 0;
+		while (drained < limit) {
+			int index = (int) (position & this.mask);
+			if (this.sequences.get(index) != position + 1) {
+				break;
+			}
+			E element = (E) this.elements[index];
+			this.elements[index] = null;
+			this.sequences.lazySet(index, position + this.elements.length);
+			position++;
+			this.head.lazySet(position);
+			drained++;
+			consumer.accept(element);
+		}
+		return drained;
+	}
+
+	/**
+	 * @return approximate number of elements in the buffer
+	 */
+	int size() {
+		long size = this.tail.get() - this.head.get();
+		return (int) Math.max(0, Math.min(size, this.elements.length));
+	}
+
+}
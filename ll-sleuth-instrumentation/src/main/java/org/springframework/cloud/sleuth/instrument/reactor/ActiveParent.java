@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.TraceContext;
+import org.springframework.lang.Nullable;
+
+/**
+ * Per thread record of the parent put in scope by the innermost
+ * {@link ScopePassingSpanSubscriber} signal on this thread. A signal nested in a scope
+ * that was opened for the very same parent (e.g. the {@code onNext} calls emitted
+ * synchronously from within {@code request}) does not need to open a scope again, as
+ * long as the parent is still the current context: user code may have put another
+ * context in scope in between, e.g. with {@code tracer.withSpan(child)}.
+ * <p>
+ * The holder is mutated in place, callers save the previous parent and restore it in a
+ * {@code finally} block so that nesting is handled without allocating.
+ */
+final class ActiveParent {
+
+	private static final ThreadLocal<ActiveParent> CURRENT = ThreadLocal.withInitial(ActiveParent::new);
+
+	@Nullable
+	TraceContext parent;
+
+	private ActiveParent() {
+	}
+
+	static ActiveParent current() {
+		return CURRENT.get();
+	}
+
+	boolean isInScope(@Nullable TraceContext parent, CurrentTraceContext currentTraceContext) {
+		return parent != null && this.parent == parent && parent.equals(currentTraceContext.context());
+	}
+
+}
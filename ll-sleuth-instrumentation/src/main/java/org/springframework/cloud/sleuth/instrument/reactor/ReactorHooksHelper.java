@@ -17,6 +17,7 @@
 package org.springframework.cloud.sleuth.instrument.reactor;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 
 import org.reactivestreams.Processor;
@@ -96,6 +97,13 @@ final class ReactorHooksHelper {
 		sourceProducerClass = c;
 	}
 
+	private static final ClassValue<PublisherType> PUBLISHER_TYPES = new ClassValue<PublisherType>() {
+		@Override
+		protected PublisherType computeValue(Class<?> type) {
+			return new PublisherType(type);
+		}
+	};
+
 	private ReactorHooksHelper() {
 	}
 
@@ -113,31 +121,46 @@ final class ReactorHooksHelper {
 		while (true) {
 			if (current == null) {
 				// is start of the chain, Publisher without source or foreign Publisher
-				return true;
+				return decorate();
 			}
-			if (current instanceof Fuseable.ScalarCallable) {
-				return false;
+			PublisherType type = PUBLISHER_TYPES.get(current.getClass());
+			if (type.scalarCallable) {
+				return skip(ReactorInstrumentationCounters.PUBLISHERS_SKIPPED_SCALAR_CALLABLE);
 			}
-			if (isTraceContextPropagator(current)) {
-				return false;
+			if (type.traceContextPropagator) {
+				return skip(ReactorInstrumentationCounters.PUBLISHERS_SKIPPED_PROPAGATOR);
+			}
+			String lifterName = type.lifterName(current);
+			if (isScopePassingLifter(lifterName)) {
+				return skip(ReactorInstrumentationCounters.PUBLISHERS_SKIPPED_PROPAGATOR);
 			}
 
-			if (!isSync(current)) {
-				boolean isLifter = getLifterName(current) != null;
-				if (isLifter) {
-					return shouldDecorateLifter(current);
+			if (!type.isSync(current)) {
+				if (lifterName != null) {
+					return shouldDecorateLifter(current) ? decorate()
+							: skip(ReactorInstrumentationCounters.PUBLISHERS_SKIPPED_PROPAGATOR);
 				}
-				return true;
+				return decorate();
 			}
 
-			if (isSourceProducer(current)) {
-				return false;
+			if (type.sourceProducer) {
+				return skip(ReactorInstrumentationCounters.PUBLISHERS_SKIPPED_SOURCE_PRODUCER);
 			}
 
 			current = getParent(current);
 		}
 	}
 
+	private static boolean decorate() {
+		ReactorInstrumentationCounters.PUBLISHERS_DECORATED.increment();
+		return true;
+	}
+
+	private static boolean skip(LongAdder reason) {
+		reason.increment();
+		return false;
+	}
+
 	/**
 	 * xxxLift Publishers get their RunStyle from source Publisher. So need to check
 	 * whether current chain was decorated with scope passing operator.
@@ -175,13 +198,8 @@ final class ReactorHooksHelper {
 		return current instanceof TraceContextPropagator || isScopePassingLifter(getLifterName(current));
 	}
 
-	private static boolean isSourceProducer(Publisher<?> p) {
-		return sourceProducerClass.isInstance(p);
-	}
-
-	private static boolean isSync(Publisher<?> p) {
-		return !(p instanceof Processor)
-				&& Scannable.Attr.RunStyle.SYNC == Scannable.from(p).scan(Scannable.Attr.RUN_STYLE);
+	private static boolean scanSync(Publisher<?> p) {
+		return Scannable.Attr.RunStyle.SYNC == Scannable.from(p).scan(Scannable.Attr.RUN_STYLE);
 	}
 
 	@Nullable
@@ -193,6 +211,74 @@ final class ReactorHooksHelper {
 		return null;
 	}
 
+	/**
+	 * Per class facts used by {@link #shouldDecorate(Publisher)}. The {@code instanceof}
+	 * checks only depend on the class. reactor-core operators also report a constant
+	 * {@code RUN_STYLE} and no {@code LIFTER}, except the lifters and the
+	 * {@code FluxSource} / {@code MonoSource} adapters that report the ones of their
+	 * source, so for them the scan is done once per class instead of once per assembly.
+	 * Other publishers are scanned every time. Being a {@link ClassValue} the cache is
+	 * bounded by the loaded classes and does not prevent them from being unloaded.
+	 */
+	static final class PublisherType {
+
+		final boolean scalarCallable;
+
+		final boolean traceContextPropagator;
+
+		final boolean sourceProducer;
+
+		final boolean processor;
+
+		final boolean constantScan;
+
+		private volatile Boolean sync;
+
+		PublisherType(Class<?> type) {
+			this.scalarCallable = Fuseable.ScalarCallable.class.isAssignableFrom(type);
+			this.traceContextPropagator = TraceContextPropagator.class.isAssignableFrom(type);
+			this.sourceProducer = sourceProducerClass.isAssignableFrom(type);
+			this.processor = Processor.class.isAssignableFrom(type);
+			this.constantScan = hasConstantScan(type);
+		}
+
+		private static boolean hasConstantScan(Class<?> type) {
+			String name = type.getName();
+			if (!name.startsWith("reactor.core.publisher.")) {
+				return false;
+			}
+			String simpleName = name.substring("reactor.core.publisher.".length());
+			return !simpleName.contains("Lift") && !simpleName.startsWith("FluxSource")
+					&& !simpleName.startsWith("MonoSource");
+		}
+
+		@Nullable
+		String lifterName(Publisher<?> p) {
+			return this.constantScan ? null : getLifterName(p);
+		}
+
+		boolean isSync(Publisher<?> p) {
+			if (this.processor) {
+				return false;
+			}
+			if (!this.constantScan) {
+				ReactorInstrumentationCounters.DECORATION_CACHE_MISSES.increment();
+				return scanSync(p);
+			}
+			Boolean sync = this.sync;
+			if (sync == null) {
+				ReactorInstrumentationCounters.DECORATION_CACHE_MISSES.increment();
+				sync = scanSync(p);
+				this.sync = sync;
+			}
+			else {
+				ReactorInstrumentationCounters.DECORATION_CACHE_HITS.increment();
+			}
+			return sync;
+		}
+
+	}
+
 	/**
 	 * @param name function name.
 	 * @param delegate delegate function.
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Only for internal use. Counters of the Reactor instrumentation itself, they are
+ * exported as meters by the auto-configuration when Micrometer is on the classpath.
+ */
+public final class ReactorInstrumentationCounters {
+
+	static final LongAdder DECORATION_CACHE_HITS = new LongAdder();
+
+	static final LongAdder DECORATION_CACHE_MISSES = new LongAdder();
+
+	static final LongAdder PUBLISHERS_DECORATED = new LongAdder();
+
+	static final LongAdder PUBLISHERS_SKIPPED_SCALAR_CALLABLE = new LongAdder();
+
+	static final LongAdder PUBLISHERS_SKIPPED_SOURCE_PRODUCER = new LongAdder();
+
+	static final LongAdder PUBLISHERS_SKIPPED_PROPAGATOR = new LongAdder();
+
+	static final LongAdder SUBSCRIBERS_DECORATED = new LongAdder();
+
+	static final LongAdder SUBSCRIBERS_SKIPPED_NO_TRACE = new LongAdder();
+
+	static final LongAdder SUBSCRIBERS_DOUBLE_WRAP_AVOIDED = new LongAdder();
+
+	static final LongAdder SCOPE_ENTERS = new LongAdder();
+
+	private ReactorInstrumentationCounters() {
+	}
+
+	/**
+	 * @return number of times {@link ReactorHooksHelper#shouldDecorate} took the run
+	 * style of a publisher from the per class cache.
+	 */
+	public static long decorationCacheHits() {
+		return DECORATION_CACHE_HITS.sum();
+	}
+
+	/**
+	 * @return number of times {@link ReactorHooksHelper#shouldDecorate} had to scan a
+	 * publisher for its run style.
+	 */
+	public static long decorationCacheMisses() {
+		return DECORATION_CACHE_MISSES.sum();
+	}
+
+	/**
+	 * @return number of publishers {@link ReactorHooksHelper#shouldDecorate} decided to
+	 * decorate.
+	 */
+	public static long publishersDecorated() {
+		return PUBLISHERS_DECORATED.sum();
+	}
+
+	/**
+	 * @return number of publishers not decorated because they are
+	 * {@link reactor.core.Fuseable.ScalarCallable}s.
+	 */
+	public static long publishersSkippedScalarCallable() {
+		return PUBLISHERS_SKIPPED_SCALAR_CALLABLE.sum();
+	}
+
+	/**
+	 * @return number of publishers not decorated because the chain is synchronous down to
+	 * a source producer.
+	 */
+	public static long publishersSkippedSourceProducer() {
+		return PUBLISHERS_SKIPPED_SOURCE_PRODUCER.sum();
+	}
+
+	/**
+	 * @return number of publishers not decorated because a {@link TraceContextPropagator}
+	 * or a scope passing decorator already propagates the context.
+	 */
+	public static long publishersSkippedPropagator() {
+		return PUBLISHERS_SKIPPED_PROPAGATOR.sum();
+	}
+
+	/**
+	 * @return number of subscribers wrapped in a {@link ScopePassingSpanSubscriber}.
+	 */
+	public static long subscribersDecorated() {
+		return SUBSCRIBERS_DECORATED.sum();
+	}
+
+	/**
+	 * @return number of subscribers of decorated publishers left as is because there was
+	 * no trace to pass.
+	 */
+	public static long subscribersSkippedNoTrace() {
+		return SUBSCRIBERS_SKIPPED_NO_TRACE.sum();
+	}
+
+	/**
+	 * @return number of subscribers left as is because they already pass the same
+	 * parent.
+	 */
+	public static long subscribersDoubleWrapAvoided() {
+		return SUBSCRIBERS_DOUBLE_WRAP_AVOIDED.sum();
+	}
+
+	/**
+	 * @return number of scopes the instrumentation opened to pass the context to a signal
+	 * or a task.
+	 */
+	public static long scopeEnters() {
+		return SCOPE_ENTERS.sum();
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+/**
+ * How the tracing context gets propagated through Reactor, from the most accurate and
+ * most expensive to the cheapest.
+ *
+ * @see ReactorSleuth#installHooks
+ */
+public enum ReactorInstrumentationType {
+
+	/**
+	 * Decorates every operator that may switch threads (see
+	 * {@link ReactorHooksHelper#shouldDecorate}), the context is restored on each of
+	 * them.
+	 */
+	ON_EACH,
+
+	/**
+	 * Decorates only the last operator of each chain. Callbacks of the operators running
+	 * after a thread switch may see the wrong context.
+	 */
+	ON_LAST,
+
+	/**
+	 * Propagates the context at the scheduler hops only: captures it when a task is
+	 * scheduled on a Reactor scheduler (e.g. by {@code subscribeOn}, or by
+	 * {@code publishOn} draining its queue) and restores it on the worker. Only the last
+	 * operator of each chain is decorated. The queues of the operators are not decorated,
+	 * a scope opened when an element is polled could not be closed once it is emitted.
+	 */
+	DECORATE_QUEUES,
+
+	/**
+	 * Installs no hook, the context has to be restored manually, e.g. from the
+	 * {@link io.micrometer.tracing.TraceContext} stored in the Reactor context.
+	 */
+	MANUAL
+
+}
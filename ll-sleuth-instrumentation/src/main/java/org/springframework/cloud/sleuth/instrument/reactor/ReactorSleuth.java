@@ -23,17 +23,19 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
 import org.springframework.cloud.sleuth.internal.LazyBean;
+import org.springframework.cloud.sleuth.internal.SleuthContextListener;
 import org.springframework.context.ConfigurableApplicationContext;
 import reactor.core.CoreSubscriber;
 import reactor.core.Fuseable;
 import reactor.core.Scannable;
 import reactor.core.publisher.Hooks;
 import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.context.Context;
 
+import java.lang.invoke.MethodHandle;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.function.Predicate;
 
 import static org.springframework.cloud.sleuth.instrument.reactor.ReactorHooksHelper.named;
 
@@ -50,6 +52,9 @@ public abstract class ReactorSleuth {
 
 	private static final Log log = LogFactory.getLog(ReactorSleuth.class);
 
+	// trace level of the lift function, see refreshLogLevels()
+	private static final MethodHandle TRACE = TraceLogSwitch.of(log).invoker();
+
 	private ReactorSleuth() {
 	}
 
@@ -58,12 +63,100 @@ public abstract class ReactorSleuth {
 	 */
 	public static Function<Context, Context> contextWrappingFunction = Function.identity();
 
+	static final String HOOK_KEY = ReactorSleuth.class.getName();
+
+	/**
+	 * Installs the Reactor hooks of the given instrumentation type, replacing the ones
+	 * installed before.
+	 * @param springContext the Spring context to retrieve the tracing beans from
+	 * @param type instrumentation type
+	 */
+	public static void installHooks(ConfigurableApplicationContext springContext, ReactorInstrumentationType type) {
+		resetHooks();
+		refreshLogLevels();
+		if (log.isTraceEnabled()) {
+			log.trace("Installing Reactor hooks for instrumentation type [" + type + "]");
+		}
+		switch (type) {
+		case ON_EACH:
+			Hooks.onEachOperator(HOOK_KEY, onEachOperator(springContext));
+			break;
+		case ON_LAST:
+			Hooks.onLastOperator(HOOK_KEY, onLastOperator(springContext));
+			break;
+		case DECORATE_QUEUES:
+			LazyBean<CurrentTraceContext> lazyCurrentTraceContext = LazyBean.create(springContext,
+					CurrentTraceContext.class);
+			Schedulers.onScheduleHook(HOOK_KEY, TraceContextRunnable.scheduleHook(lazyCurrentTraceContext));
+			Hooks.onLastOperator(HOOK_KEY, onLastOperator(springContext));
+			break;
+		case MANUAL:
+			break;
+		}
+	}
+
+	/**
+	 * Reads the logging levels the reactor instrumentation captured again. With Spring
+	 * Cloud Context it is called once the {@code logging.level} properties of a changed
+	 * environment were applied. Levels changed otherwise at runtime, through the
+	 * {@code loggers} actuator endpoint, the {@code LoggingSystem} or the logging
+	 * backend, publish no event: this method has to be called after such changes.
+	 */
+	public static void refreshLogLevels() {
+		TraceLogSwitch.refreshAll();
+	}
+
+	/**
+	 * Removes the Reactor hooks installed by {@link #installHooks}.
+	 */
+	public static void resetHooks() {
+		Hooks.resetOnEachOperator(HOOK_KEY);
+		Hooks.resetOnLastOperator(HOOK_KEY);
+		Schedulers.resetOnScheduleHook(HOOK_KEY);
+	}
+
+	/**
+	 * @param springContext the Spring context to retrieve the tracing beans from
+	 * @param <T> type of the publisher
+	 * @return operator hook that decorates the publishers that may switch threads, see
+	 * {@link ReactorHooksHelper#shouldDecorate}
+	 */
+	public static <T> Function<? super Publisher<T>, ? extends Publisher<T>> onEachOperator(
+			ConfigurableApplicationContext springContext) {
+		return Operators.liftPublisher(ReactorHooksHelper::shouldDecorate, ReactorSleuth.<T>scopePassingLifter(springContext));
+	}
+
+	/**
+	 * @param springContext the Spring context to retrieve the tracing beans from
+	 * @param <T> type of the publisher
+	 * @return operator hook that decorates the last publisher of a chain, unless it
+	 * already propagates the context
+	 */
+	public static <T> Function<? super Publisher<T>, ? extends Publisher<T>> onLastOperator(
+			ConfigurableApplicationContext springContext) {
+		return Operators.liftPublisher(p -> !ReactorHooksHelper.isTraceContextPropagator(p),
+				ReactorSleuth.<T>scopePassingLifter(springContext));
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static <T> BiFunction<Publisher, CoreSubscriber<? super T>, CoreSubscriber<? super T>> scopePassingLifter(
+			ConfigurableApplicationContext springContext) {
+		// keep the lazy beans outside the lambda so that they are resolved only once
+		LazyBean<CurrentTraceContext> lazyCurrentTraceContext = LazyBean.create(springContext,
+				CurrentTraceContext.class);
+		LazyBean<Tracer> lazyTracer = LazyBean.create(springContext, Tracer.class);
+		return (BiFunction) named(ReactorHooksHelper.LIFTER_NAME,
+				liftFunction(springContext, lazyCurrentTraceContext, lazyTracer));
+	}
+
 	static <O> BiFunction<Publisher, ? super CoreSubscriber<? super O>, ? extends CoreSubscriber<? super O>> liftFunction(
 			ConfigurableApplicationContext springContext, LazyBean<CurrentTraceContext> lazyCurrentTraceContext,
 			LazyBean<Tracer> lazyTracer) {
+		// flipped by the refreshed / closed events, cheaper than asking the context
+		SleuthContextListener lifecycle = SleuthContextListener.getBean(springContext);
 		return (p, sub) -> {
-			if (!springContext.isActive() || !springContext.isRunning()) {
-				if (log.isTraceEnabled()) {
+			if (!lifecycle.isReady()) {
+				if (TraceLogSwitch.isEnabled(TRACE)) {
 					String message = "Spring Context [" + springContext
 							+ "] is not yet refreshed. This is unexpected. Reactor Context is [" + context(sub)
 							+ "] and name is [" + name(sub) + "]";
@@ -74,7 +167,7 @@ public abstract class ReactorSleuth {
 
 			Context context = context(sub);
 
-			if (log.isTraceEnabled()) {
+			if (TraceLogSwitch.isEnabled(TRACE)) {
 				log.trace("Spring context [" + springContext + "], Reactor context [" + context + "], name ["
 						+ name(sub) + "]");
 			}
@@ -82,7 +175,7 @@ public abstract class ReactorSleuth {
 			// Try to get the current trace context bean, lenient when there are problems
 			CurrentTraceContext currentTraceContext = lazyCurrentTraceContext.get();
 			if (currentTraceContext == null) {
-				if (log.isTraceEnabled()) {
+				if (TraceLogSwitch.isEnabled(TRACE)) {
 					String message = "Spring Context [" + springContext
 							+ "] did not return a CurrentTraceContext. Reactor Context is [" + context
 							+ "] and name is [" + name(sub) + "]";
@@ -93,6 +186,7 @@ public abstract class ReactorSleuth {
 
 			TraceContext parent = traceContext(context, currentTraceContext);
 			if (parent == null) {
+				ReactorInstrumentationCounters.SUBSCRIBERS_SKIPPED_NO_TRACE.increment();
 				return sub; // no need to scope a null parent
 			}
 
@@ -100,32 +194,51 @@ public abstract class ReactorSleuth {
 			if (sub instanceof ScopePassingSpanSubscriber) {
 				ScopePassingSpanSubscriber<?> scopePassing = (ScopePassingSpanSubscriber<?>) sub;
 				if (scopePassing.parent.equals(parent)) {
+					ReactorInstrumentationCounters.SUBSCRIBERS_DOUBLE_WRAP_AVOIDED.increment();
 					return sub; // don't double-wrap
 				}
 			}
 
-			context = contextWithBeans(context, lazyTracer, lazyCurrentTraceContext);
-			if (log.isTraceEnabled()) {
+			context = contextWithTracing(context, lazyTracer, currentTraceContext, parent);
+			if (TraceLogSwitch.isEnabled(TRACE)) {
 				log.trace("Spring context [" + springContext + "], Reactor context [" + context + "], name ["
 						+ name(sub) + "]");
 			}
 
-			if (log.isTraceEnabled()) {
+			if (TraceLogSwitch.isEnabled(TRACE)) {
 				log.trace("Creating a scope passing span subscriber with Reactor Context " + "[" + context
 						+ "] and name [" + name(sub) + "]");
 			}
 
+			ReactorInstrumentationCounters.SUBSCRIBERS_DECORATED.increment();
+			if (p instanceof Fuseable) {
+				// keeps the queue fusion of the decorated operator
+				return new ScopePassingSpanFuseableSubscriber<>(sub, context, currentTraceContext, parent);
+			}
 			return new ScopePassingSpanSubscriber<>(sub, context, currentTraceContext, parent);
 		};
 	}
 
-	private static <T> Context contextWithBeans(Context context, LazyBean<Tracer> tracer,
-			LazyBean<CurrentTraceContext> currentTraceContext) {
+	/**
+	 * Adds the tracing beans and the parent to the Reactor context, so that the
+	 * {@link ScopePassingSpanSubscriber} does not have to copy it again. An empty context,
+	 * which is what most chains end with, is replaced by a single three entries context
+	 * instead of being copied once per entry, otherwise only the missing entries are put.
+	 */
+	private static Context contextWithTracing(Context context, LazyBean<Tracer> tracer,
+			CurrentTraceContext currentTraceContext, TraceContext parent) {
+		if (context.isEmpty()) {
+			return Context.of(Tracer.class, tracer.getOrError(), CurrentTraceContext.class,
+					currentTraceContext, TraceContext.class, parent);
+		}
 		if (!context.hasKey(Tracer.class)) {
 			context = context.put(Tracer.class, tracer.getOrError());
 		}
 		if (!context.hasKey(CurrentTraceContext.class)) {
-			context = context.put(CurrentTraceContext.class, currentTraceContext.getOrError());
+			context = context.put(CurrentTraceContext.class, currentTraceContext);
+		}
+		if (!parent.equals(context.getOrDefault(TraceContext.class, null))) {
+			context = context.put(TraceContext.class, parent);
 		}
 		return context;
 	}
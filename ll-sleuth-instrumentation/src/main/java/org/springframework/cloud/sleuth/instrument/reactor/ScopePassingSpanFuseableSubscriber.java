@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.TraceContext;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.lang.Nullable;
+import reactor.core.Fuseable;
+import reactor.util.context.Context;
+
+/**
+ * A {@link ScopePassingSpanSubscriber} for {@link Fuseable} sources. Instead of
+ * negotiating {@link Fuseable#NONE} it passes the fusion request through to the upstream
+ * {@link reactor.core.Fuseable.QueueSubscription}, so that the traced chain keeps its
+ * queue-free execution. In fused mode the values are pulled with {@link #poll()}, which
+ * is why the poll happens in the scope of the parent context.
+ *
+ * @param <T> subscription type
+ */
+final class ScopePassingSpanFuseableSubscriber<T> extends ScopePassingSpanSubscriber<T> {
+
+	private Fuseable.QueueSubscription<T> qs;
+
+	ScopePassingSpanFuseableSubscriber(Subscriber<? super T> subscriber, Context ctx,
+			CurrentTraceContext currentTraceContext, @Nullable TraceContext parent) {
+		super(subscriber, ctx, currentTraceContext, parent);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void onSubscribe(Subscription subscription) {
+		if (subscription instanceof Fuseable.QueueSubscription) {
+			this.qs = (Fuseable.QueueSubscription<T>) subscription;
+		}
+		super.onSubscribe(subscription);
+	}
+
+	@Override
+	public int requestFusion(int requestedMode) {
+		Fuseable.QueueSubscription<T> qs = this.qs;
+		if (qs == null) {
+			return Fuseable.NONE;
+		}
+		// THREAD_BARRIER is passed as is, the upstream decides whether it can be fused
+		return qs.requestFusion(requestedMode);
+	}
+
+	@Override
+	@Nullable
+	public T poll() {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
+			return this.qs.poll();
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
+			return this.qs.poll();
+		}
+		finally {
+			active.parent = previous;
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.qs.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.qs.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		this.qs.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "ScopePassingSpanFuseableSubscriber{" + "subscriber=" + this.subscriber + ", parent=" + this.parent
+				+ "}";
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.sleuth.instrument.reactor;
 
+import java.lang.invoke.MethodHandle;
+
 import io.micrometer.tracing.CurrentTraceContext;
 import io.micrometer.tracing.TraceContext;
 import org.apache.commons.logging.Log;
@@ -27,25 +29,29 @@ import reactor.core.Scannable;
 import reactor.util.context.Context;
 
 /**
- * A trace representation of the {@link Subscriber} that always continues a span.
+ * A trace representation of the {@link Subscriber} that always continues a span. Signals
+ * nested in a scope that another scope passing signal already opened for the same parent
+ * on this thread (see {@link ActiveParent}) do not open the scope again.
  *
  * @param <T> subscription type
  * @author Marcin Grzejszczak
  * @since 2.0.0
  */
-final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scannable {
+class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scannable {
 
 	private static final Log log = LogFactory.getLog(ScopePassingSpanSubscriber.class);
 
-	private final Subscriber<? super T> subscriber;
+	private static final MethodHandle TRACE = TraceLogSwitch.of(log).invoker();
+
+	final Subscriber<? super T> subscriber;
 
 	private final Context context;
 
-	private final CurrentTraceContext currentTraceContext;
+	final CurrentTraceContext currentTraceContext;
 
 	final TraceContext parent;
 
-	private Subscription s;
+	Subscription s;
 
 	ScopePassingSpanSubscriber(Subscriber<? super T> subscriber, Context ctx, CurrentTraceContext currentTraceContext,
 			@Nullable TraceContext parent) {
@@ -55,7 +61,7 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 		Context context = parent != null && !parent.equals(ctx.getOrDefault(TraceContext.class, null))
 				? ctx.put(TraceContext.class, parent) : ctx;
 		this.context = ReactorSleuth.wrapContext(context);
-		if (log.isTraceEnabled()) {
+		if (TraceLogSwitch.isEnabled(TRACE)) {
 			log.trace("Parent span [" + parent + "], context [" + this.context + "]");
 		}
 	}
@@ -63,43 +69,103 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 	@Override
 	public void onSubscribe(Subscription subscription) {
 		this.s = subscription;
-		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
+			this.subscriber.onSubscribe(this);
+			return;
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
 			this.subscriber.onSubscribe(this);
 		}
+		finally {
+			active.parent = previous;
+		}
 	}
 
 	@Override
 	public void request(long n) {
-		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
 			this.s.request(n);
+			return;
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
+			this.s.request(n);
+		}
+		finally {
+			active.parent = previous;
 		}
 	}
 
 	@Override
 	public void cancel() {
-		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
 			this.s.cancel();
+			return;
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
+			this.s.cancel();
+		}
+		finally {
+			active.parent = previous;
 		}
 	}
 
 	@Override
 	public void onNext(T o) {
-		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
 			this.subscriber.onNext(o);
+			return;
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
+			this.subscriber.onNext(o);
+		}
+		finally {
+			active.parent = previous;
 		}
 	}
 
 	@Override
 	public void onError(Throwable throwable) {
-		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
 			this.subscriber.onError(throwable);
+			return;
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
+			this.subscriber.onError(throwable);
+		}
+		finally {
+			active.parent = previous;
 		}
 	}
 
 	@Override
 	public void onComplete() {
-		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
+		ActiveParent active = ActiveParent.current();
+		if (active.isInScope(this.parent, this.currentTraceContext)) {
 			this.subscriber.onComplete();
+			return;
+		}
+		TraceContext previous = active.parent;
+		active.parent = this.parent;
+		try (CurrentTraceContext.Scope scope = maybeScope()) {
+			this.subscriber.onComplete();
+		}
+		finally {
+			active.parent = previous;
 		}
 	}
 
@@ -108,6 +174,14 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 		return this.context;
 	}
 
+	/**
+	 * Opens the scope of the parent, counted as a scope enter.
+	 */
+	final CurrentTraceContext.Scope maybeScope() {
+		ReactorInstrumentationCounters.SCOPE_ENTERS.increment();
+		return this.currentTraceContext.maybeScope(this.parent);
+	}
+
 	@reactor.util.annotation.Nullable
 	@Override
 	public Object scanUnsafe(Attr key) {
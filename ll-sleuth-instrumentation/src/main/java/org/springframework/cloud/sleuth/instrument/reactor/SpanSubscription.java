@@ -23,7 +23,9 @@ import reactor.core.Fuseable;
 /**
  * A {@link SpanSubscription} is a {@link Subscription} that fakes being {@link Fuseable}
  * (implementing {@link reactor.core.Fuseable.QueueSubscription} with default no-op
- * methods and always negotiating fusion to be {@link Fuseable#NONE}).
+ * methods and always negotiating fusion to be {@link Fuseable#NONE}). Implementations
+ * that can pass fusion through, like {@link ScopePassingSpanFuseableSubscriber}, override
+ * those methods.
  *
  * @param <T> - type of the subscription
  * @author Marcin Grzejszczak
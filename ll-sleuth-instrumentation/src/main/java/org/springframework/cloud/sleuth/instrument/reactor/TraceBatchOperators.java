@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.util.context.Context;
+
+/**
+ * Batching operators that keep the trace of the batched elements, to apply with
+ * {@link Flux#transform(Function)}. The trace context current when an element is
+ * signalled is recorded, and every batch is emitted in the scope of a new batch span:
+ * <ul>
+ * <li>its parent is the context of the first traced element of the batch</li>
+ * <li>{@value #BATCH_SIZE_TAG} is the number of elements</li>
+ * <li>{@value #BATCH_LINKS_TAG} lists the distinct parents of the elements as
+ * {@code traceId/spanId} pairs when there are more than one, the tracing API has no span
+ * links</li>
+ * </ul>
+ * The span ends once the downstream {@code onNext} returns, work subscribed from within
+ * it is parented by the batch span.
+ */
+public final class TraceBatchOperators {
+
+	private static final Log log = LogFactory.getLog(TraceBatchOperators.class);
+
+	static final String BATCH_SIZE_TAG = "batch.size";
+
+	static final String BATCH_LINKS_TAG = "batch.links";
+
+	private TraceBatchOperators() {
+	}
+
+	/**
+	 * @param tracer tracer
+	 * @param spanName name of the batch spans
+	 * @param maxSize maximum number of elements of a batch
+	 * @param <T> type of the elements
+	 * @return traced {@link Flux#buffer(int)}
+	 */
+	public static <T> Function<Flux<T>, Flux<List<T>>> buffer(Tracer tracer, String spanName, int maxSize) {
+		return source -> traced(source, tracer, spanName, recorded -> recorded.buffer(maxSize));
+	}
+
+	/**
+	 * @param tracer tracer
+	 * @param spanName name of the batch spans
+	 * @param maxSize maximum number of elements of a batch
+	 * @param maxTime maximum time a batch is collected
+	 * @param <T> type of the elements
+	 * @return traced {@link Flux#bufferTimeout(int, Duration)}
+	 */
+	public static <T> Function<Flux<T>, Flux<List<T>>> bufferTimeout(Tracer tracer, String spanName, int maxSize,
+			Duration maxTime) {
+		return source -> traced(source, tracer, spanName, recorded -> recorded.bufferTimeout(maxSize, maxTime));
+	}
+
+	private static <T> Flux<List<T>> traced(Flux<T> source, Tracer tracer, String spanName,
+			Function<Flux<T>, Flux<List<T>>> batching) {
+		return new FluxBatchTrace<>(source, tracer, spanName, batching);
+	}
+
+	static final class FluxBatchTrace<T> extends FluxOperator<T, List<T>> implements TraceContextPropagator {
+
+		final Tracer tracer;
+
+		final CurrentTraceContext currentTraceContext;
+
+		final String spanName;
+
+		final Function<Flux<T>, Flux<List<T>>> batching;
+
+		FluxBatchTrace(Flux<T> source, Tracer tracer, String spanName, Function<Flux<T>, Flux<List<T>>> batching) {
+			super(source);
+			this.tracer = tracer;
+			this.currentTraceContext = tracer.currentTraceContext();
+			this.spanName = spanName;
+			this.batching = batching;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void subscribe(CoreSubscriber<? super List<T>> actual) {
+			// contexts of the elements waiting in the buffer, in arrival order
+			TraceContextIds pending = new TraceContextIds();
+			CurrentTraceContext currentTraceContext = this.currentTraceContext;
+			Flux<T> recorded = ((Flux<T>) this.source).doOnNext(element -> {
+				TraceContext context = currentTraceContext.context();
+				synchronized (pending) {
+					pending.add(context);
+				}
+			});
+			this.batching.apply(recorded).subscribe(new BatchTraceSubscriber<>(actual, this, pending));
+		}
+
+	}
+
+	static final class BatchTraceSubscriber<T> implements CoreSubscriber<List<T>> {
+
+		final CoreSubscriber<? super List<T>> actual;
+
+		final Tracer tracer;
+
+		final String spanName;
+
+		final TraceContextIds pending;
+
+		// parents of the batch being emitted, reused as the batches are emitted serially
+		final TraceContextIds parents = new TraceContextIds();
+
+		BatchTraceSubscriber(CoreSubscriber<? super List<T>> actual, FluxBatchTrace<T> parent,
+				TraceContextIds pending) {
+			this.actual = actual;
+			this.tracer = parent.tracer;
+			this.spanName = parent.spanName;
+			this.pending = pending;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.actual.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(List<T> batch) {
+			this.parents.clear();
+			synchronized (this.pending) {
+				this.pending.moveTo(this.parents, batch.size());
+			}
+			Span span = batchSpan(batch.size());
+			if (log.isTraceEnabled()) {
+				log.trace("Emitting a batch of [" + batch.size() + "] elements in " + span);
+			}
+			ActiveParent active = ActiveParent.current();
+			TraceContext previous = active.parent;
+			active.parent = span.context();
+			try (Tracer.SpanInScope scope = this.tracer.withSpan(span)) {
+				this.actual.onNext(batch);
+			}
+			finally {
+				active.parent = previous;
+				span.end();
+			}
+		}
+
+		private Span batchSpan(int size) {
+			Span.Builder builder = this.tracer.spanBuilder().name(this.spanName).tag(BATCH_SIZE_TAG,
+					String.valueOf(size));
+			TraceContext first = this.parents.first(this.tracer);
+			builder = first != null ? builder.setParent(first) : builder.setNoParent();
+			if (this.parents.size() > 1) {
+				builder = builder.tag(BATCH_LINKS_TAG, this.parents.toLinks());
+			}
+			return builder.start();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			clearPending();
+			this.actual.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			clearPending();
+			this.actual.onComplete();
+		}
+
+		private void clearPending() {
+			synchronized (this.pending) {
+				this.pending.clear();
+			}
+		}
+
+		@Override
+		public Context currentContext() {
+			return this.actual.currentContext();
+		}
+
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.Executor;
+
+import io.micrometer.tracing.CurrentTraceContext;
+
+/**
+ * {@link Executor} that runs the tasks in the trace context of the thread submitting
+ * them, e.g. to back a {@code Schedulers.fromExecutor} scheduler with a virtual thread
+ * per task executor. The context is captured once per task, tasks submitted without a
+ * trace are passed as is.
+ */
+public final class TraceContextExecutor implements Executor {
+
+	private final Executor delegate;
+
+	private final CurrentTraceContext currentTraceContext;
+
+	public TraceContextExecutor(Executor delegate, CurrentTraceContext currentTraceContext) {
+		this.delegate = delegate;
+		this.currentTraceContext = currentTraceContext;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		this.delegate.execute(TraceContextRunnable.wrap(this.currentTraceContext, command));
+	}
+
+	@Override
+	public String toString() {
+		return "TraceContextExecutor{" + this.delegate + "}";
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.Arrays;
+
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Trace and span ids of a sequence of trace contexts, kept in primitive arrays (high and
+ * low bits of the trace id, span id) instead of a list of {@link TraceContext}s. Used as
+ * the queue of the contexts of the elements waiting in a batching operator, where a run
+ * of elements in the same context is a single entry with a count and the ids are only
+ * parsed when the context changes, and as the distinct parents of a batch.
+ * <p>
+ * Not thread safe.
+ */
+final class TraceContextIds {
+
+	private static final int STRIDE = 3;
+
+	private static final byte SAMPLED_UNKNOWN = 0;
+
+	private static final byte SAMPLED = 1;
+
+	private static final byte NOT_SAMPLED = 2;
+
+	private long[] ids = new long[16 * STRIDE];
+
+	private byte[] sampled = new byte[16];
+
+	// number of elements in the context of each entry
+	private int[] counts = new int[16];
+
+	// index of the first entry not taken yet
+	private int head;
+
+	private int size;
+
+	// ids of the last entry as given by the tracer, null for an empty entry
+	@Nullable
+	private String lastTraceId;
+
+	@Nullable
+	private String lastSpanId;
+
+	/**
+	 * Appends the context of an element, a {@code null} one is kept as an empty entry so
+	 * that the entries stay aligned with the elements.
+	 */
+	void add(@Nullable TraceContext context) {
+		boolean hasLast = this.size > this.head;
+		if (context == null) {
+			if (hasLast && this.lastSpanId == null) {
+				this.counts[this.size - 1]++;
+				return;
+			}
+			append(0L, 0L, 0L, SAMPLED_UNKNOWN);
+			this.lastTraceId = null;
+			this.lastSpanId = null;
+			return;
+		}
+		String traceId = context.traceId();
+		String spanId = context.spanId();
+		if (hasLast && spanId.equals(this.lastSpanId) && traceId.equals(this.lastTraceId)) {
+			this.counts[this.size - 1]++;
+			return;
+		}
+		int length = traceId.length();
+		long high = length > 16 ? parseHex(traceId, 0, length - 16) : 0L;
+		long low = parseHex(traceId, Math.max(0, length - 16), length);
+		Boolean contextSampled = context.sampled();
+		append(high, low, parseHex(spanId, 0, spanId.length()),
+				contextSampled == null ? SAMPLED_UNKNOWN : contextSampled ? SAMPLED : NOT_SAMPLED);
+		this.lastTraceId = traceId;
+		this.lastSpanId = spanId;
+	}
+
+	private void append(long high, long low, long spanId, byte sampled) {
+		if (this.size == this.sampled.length) {
+			if (this.head > 0) {
+				compact();
+			}
+			else {
+				this.ids = Arrays.copyOf(this.ids, this.ids.length * 2);
+				this.sampled = Arrays.copyOf(this.sampled, this.sampled.length * 2);
+				this.counts = Arrays.copyOf(this.counts, this.counts.length * 2);
+			}
+		}
+		int i = this.size * STRIDE;
+		this.ids[i] = high;
+		this.ids[i + 1] = low;
+		this.ids[i + 2] = spanId;
+		this.sampled[this.size] = sampled;
+		this.counts[this.size] = 1;
+		this.size++;
+	}
+
+	private void compact() {
+		int remaining = this.size - this.head;
+		System.arraycopy(this.ids, this.head * STRIDE, this.ids, 0, remaining * STRIDE);
+		System.arraycopy(this.sampled, this.head, this.sampled, 0, remaining);
+		System.arraycopy(this.counts, this.head, this.counts, 0, remaining);
+		this.head = 0;
+		this.size = remaining;
+	}
+
+	/**
+	 * Moves the contexts of the next {@code elements} elements to the given batch,
+	 * skipping empty entries and a context equal to the last one of the batch.
+	 */
+	void moveTo(TraceContextIds batch, int elements) {
+		int remaining = elements;
+		while (remaining > 0 && this.head < this.size) {
+			int c = this.head;
+			int i = c * STRIDE;
+			long high = this.ids[i];
+			long low = this.ids[i + 1];
+			long spanId = this.ids[i + 2];
+			if ((low | spanId) != 0L && !batch.isLast(high, low, spanId)) {
+				batch.append(high, low, spanId, this.sampled[c]);
+			}
+			int taken = Math.min(remaining, this.counts[c]);
+			this.counts[c] -= taken;
+			remaining -= taken;
+			if (this.counts[c] == 0) {
+				this.head++;
+			}
+		}
+		if (this.head == this.size) {
+			clear();
+		}
+	}
+
+	private boolean isLast(long high, long low, long spanId) {
+		if (this.size == this.head) {
+			return false;
+		}
+		int i = (this.size - 1) * STRIDE;
+		return this.ids[i] == high && this.ids[i + 1] == low && this.ids[i + 2] == spanId;
+	}
+
+	/**
+	 * @return number of entries, i.e. distinct contexts for a batch
+	 */
+	int size() {
+		return this.size - this.head;
+	}
+
+	void clear() {
+		this.head = 0;
+		this.size = 0;
+		this.lastTraceId = null;
+		this.lastSpanId = null;
+	}
+
+	/**
+	 * @return the first context, rebuilt with the tracer, or {@code null} if there is
+	 * none
+	 */
+	@Nullable
+	TraceContext first(Tracer tracer) {
+		if (size() == 0) {
+			return null;
+		}
+		int i = this.head * STRIDE;
+		byte firstSampled = this.sampled[this.head];
+		char[] traceId = this.ids[i] != 0L ? new char[32] : new char[16];
+		if (this.ids[i] != 0L) {
+			writeHex(this.ids[i], traceId, 0);
+		}
+		writeHex(this.ids[i + 1], traceId, traceId.length - 16);
+		char[] spanId = new char[16];
+		writeHex(this.ids[i + 2], spanId, 0);
+		return tracer.traceContextBuilder().traceId(new String(traceId)).spanId(new String(spanId))
+				.sampled(firstSampled == SAMPLED_UNKNOWN ? null : firstSampled == SAMPLED).build();
+	}
+
+	/**
+	 * @return the contexts as comma separated {@code traceId/spanId} pairs
+	 */
+	String toLinks() {
+		int count = size();
+		char[] links = new char[count * 50];
+		int position = 0;
+		for (int c = this.head; c < this.size; c++) {
+			int i = c * STRIDE;
+			if (position > 0) {
+				links[position++] = ',';
+			}
+			if (this.ids[i] != 0L) {
+				writeHex(this.ids[i], links, position);
+				position += 16;
+			}
+			writeHex(this.ids[i + 1], links, position);
+			position += 16;
+			links[position++] = '/';
+			writeHex(this.ids[i + 2], links, position);
+			position += 16;
+		}
+		return new String(links, 0, position);
+	}
+
+	/**
+	 * Lenient hex parsing, the ids are written by the tracer.
+	 */
+	private static long parseHex(String hex, int begin, int end) {
+		long value = 0L;
+		for (int i = begin; i < end; i++) {
+			char c = hex.charAt(i);
+			int digit = c <= '9' ? c - '0' : (c | 0x20) - 'a' + 10;
+			value = (value << 4) | (digit & 0xF);
+		}
+		return value;
+	}
+
+	private static void writeHex(long value, char[] target, int offset) {
+		for (int i = 15; i >= 0; i--) {
+			target[offset + i] = Character.forDigit((int) (value & 0xF), 16);
+			value >>>= 4;
+		}
+	}
+
+}
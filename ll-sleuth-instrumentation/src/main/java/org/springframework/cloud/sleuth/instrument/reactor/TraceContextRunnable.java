@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.function.Function;
+
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.TraceContext;
+import org.springframework.cloud.sleuth.internal.LazyBean;
+
+/**
+ * {@link Runnable} installed with
+ * {@link reactor.core.scheduler.Schedulers#onScheduleHook} for the
+ * {@link ReactorInstrumentationType#DECORATE_QUEUES} instrumentation, and by
+ * {@link TraceContextScheduler} and {@link TraceContextExecutor}. The trace context
+ * of the scheduling thread is captured when the task is scheduled (e.g. by
+ * {@code subscribeOn}, or by {@code publishOn} draining a fused source) and restored on
+ * the worker.
+ */
+final class TraceContextRunnable implements Runnable {
+
+	private final CurrentTraceContext currentTraceContext;
+
+	private final TraceContext traceContext;
+
+	private final Runnable delegate;
+
+	TraceContextRunnable(CurrentTraceContext currentTraceContext, TraceContext traceContext, Runnable delegate) {
+		this.currentTraceContext = currentTraceContext;
+		this.traceContext = traceContext;
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @param lazyCurrentTraceContext current trace context
+	 * @return schedule hook that wraps the task only if there is a context to propagate
+	 */
+	static Function<Runnable, Runnable> scheduleHook(LazyBean<CurrentTraceContext> lazyCurrentTraceContext) {
+		return runnable -> {
+			CurrentTraceContext currentTraceContext = lazyCurrentTraceContext.get();
+			if (currentTraceContext == null) {
+				return runnable;
+			}
+			return wrap(currentTraceContext, runnable);
+		};
+	}
+
+	/**
+	 * @param currentTraceContext current trace context
+	 * @param task task being submitted
+	 * @return the task running in the trace context of the submitting thread, or the task
+	 * as is if there is none
+	 */
+	static Runnable wrap(CurrentTraceContext currentTraceContext, Runnable task) {
+		TraceContext traceContext = currentTraceContext.context();
+		if (traceContext == null) {
+			return task;
+		}
+		return new TraceContextRunnable(currentTraceContext, traceContext, task);
+	}
+
+	@Override
+	public void run() {
+		ReactorInstrumentationCounters.SCOPE_ENTERS.increment();
+		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.traceContext)) {
+			this.delegate.run();
+		}
+	}
+
+}
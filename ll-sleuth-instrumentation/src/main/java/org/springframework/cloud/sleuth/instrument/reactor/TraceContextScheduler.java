@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.TraceContext;
+import reactor.core.CorePublisher;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoOperator;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
+
+/**
+ * {@link Scheduler} that runs the tasks in the trace context of the thread submitting
+ * them, e.g. {@code Schedulers.boundedElastic()} for blocking calls. The context is
+ * captured once per task, tasks submitted without a trace are passed as is.
+ * <p>
+ * The publishers returned by {@link #fromCallable(Callable)} and the
+ * {@code subscribeOn} methods take the trace context from the subscriber context, so
+ * they propagate it without the Reactor hooks. They are
+ * {@link TraceContextPropagator}s, the operators assembled after them are not decorated
+ * again.
+ */
+public final class TraceContextScheduler implements Scheduler {
+
+	private final Scheduler delegate;
+
+	private final CurrentTraceContext currentTraceContext;
+
+	public TraceContextScheduler(Scheduler delegate, CurrentTraceContext currentTraceContext) {
+		this.delegate = delegate;
+		this.currentTraceContext = currentTraceContext;
+	}
+
+	/**
+	 * @param callable blocking call
+	 * @param <T> type of the result
+	 * @return a {@link Mono} calling the callable on this scheduler in the trace context
+	 * of its subscriber
+	 */
+	public <T> Mono<T> fromCallable(Callable<? extends T> callable) {
+		return subscribeOn(Mono.fromCallable(callable));
+	}
+
+	/**
+	 * @param source publisher to subscribe to on this scheduler
+	 * @param <T> type of the element
+	 * @return a {@link Mono} subscribing to the source on this scheduler in the trace
+	 * context of its subscriber
+	 */
+	public <T> Mono<T> subscribeOn(Mono<T> source) {
+		return new MonoTraceSubscribeOn<>(source.subscribeOn(this), this.currentTraceContext);
+	}
+
+	/**
+	 * @param source publisher to subscribe to on this scheduler
+	 * @param <T> type of the elements
+	 * @return a {@link Flux} subscribing to the source on this scheduler in the trace
+	 * context of its subscriber
+	 */
+	public <T> Flux<T> subscribeOn(Flux<T> source) {
+		return new FluxTraceSubscribeOn<>(source.subscribeOn(this), this.currentTraceContext);
+	}
+
+	@Override
+	public Disposable schedule(Runnable task) {
+		return this.delegate.schedule(TraceContextRunnable.wrap(this.currentTraceContext, task));
+	}
+
+	@Override
+	public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+		return this.delegate.schedule(TraceContextRunnable.wrap(this.currentTraceContext, task), delay, unit);
+	}
+
+	@Override
+	public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+		return this.delegate.schedulePeriodically(TraceContextRunnable.wrap(this.currentTraceContext, task),
+				initialDelay, period, unit);
+	}
+
+	@Override
+	public long now(TimeUnit unit) {
+		return this.delegate.now(unit);
+	}
+
+	@Override
+	public Worker createWorker() {
+		return new TraceContextWorker(this.delegate.createWorker(), this.currentTraceContext);
+	}
+
+	@Override
+	public void dispose() {
+		this.delegate.dispose();
+	}
+
+	@Override
+	public Mono<Void> disposeGracefully() {
+		return this.delegate.disposeGracefully();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return this.delegate.isDisposed();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public void start() {
+		this.delegate.start();
+	}
+
+	@Override
+	public void init() {
+		this.delegate.init();
+	}
+
+	@Override
+	public String toString() {
+		return "TraceContextScheduler{" + this.delegate + "}";
+	}
+
+	/**
+	 * Subscribes in the scope of the subscriber's trace context, which the scheduler
+	 * captures, and passes it to the signals coming back from the worker.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> void subscribe(CorePublisher<? extends T> publisher, CoreSubscriber<? super T> actual,
+			CurrentTraceContext currentTraceContext) {
+		CorePublisher<T> source = (CorePublisher<T>) publisher;
+		Context context = actual.currentContext();
+		TraceContext parent = context.getOrDefault(TraceContext.class, null);
+		if (parent != null) {
+			try (CurrentTraceContext.Scope scope = currentTraceContext.maybeScope(parent)) {
+				source.subscribe(new ScopePassingSpanSubscriber<>(actual, context, currentTraceContext, parent));
+			}
+			return;
+		}
+		parent = currentTraceContext.context();
+		if (parent == null) {
+			source.subscribe(actual);
+			return;
+		}
+		// already in scope on this thread
+		source.subscribe(new ScopePassingSpanSubscriber<>(actual, context, currentTraceContext, parent));
+	}
+
+	static final class MonoTraceSubscribeOn<T> extends MonoOperator<T, T> implements TraceContextPropagator {
+
+		final CurrentTraceContext currentTraceContext;
+
+		MonoTraceSubscribeOn(Mono<? extends T> source, CurrentTraceContext currentTraceContext) {
+			super(source);
+			this.currentTraceContext = currentTraceContext;
+		}
+
+		@Override
+		public void subscribe(CoreSubscriber<? super T> actual) {
+			TraceContextScheduler.subscribe(this.source, actual, this.currentTraceContext);
+		}
+
+	}
+
+	static final class FluxTraceSubscribeOn<T> extends FluxOperator<T, T> implements TraceContextPropagator {
+
+		final CurrentTraceContext currentTraceContext;
+
+		FluxTraceSubscribeOn(Flux<? extends T> source, CurrentTraceContext currentTraceContext) {
+			super(source);
+			this.currentTraceContext = currentTraceContext;
+		}
+
+		@Override
+		public void subscribe(CoreSubscriber<? super T> actual) {
+			TraceContextScheduler.subscribe(this.source, actual, this.currentTraceContext);
+		}
+
+	}
+
+	static final class TraceContextWorker implements Worker {
+
+		private final Worker delegate;
+
+		private final CurrentTraceContext currentTraceContext;
+
+		TraceContextWorker(Worker delegate, CurrentTraceContext currentTraceContext) {
+			this.delegate = delegate;
+			this.currentTraceContext = currentTraceContext;
+		}
+
+		@Override
+		public Disposable schedule(Runnable task) {
+			return this.delegate.schedule(TraceContextRunnable.wrap(this.currentTraceContext, task));
+		}
+
+		@Override
+		public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+			return this.delegate.schedule(TraceContextRunnable.wrap(this.currentTraceContext, task), delay, unit);
+		}
+
+		@Override
+		public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+			return this.delegate.schedulePeriodically(TraceContextRunnable.wrap(this.currentTraceContext, task),
+					initialDelay, period, unit);
+		}
+
+		@Override
+		public void dispose() {
+			this.delegate.dispose();
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return this.delegate.isDisposed();
+		}
+
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Trace level of a logger captured in a {@link MutableCallSite}, for the reactor hot
+ * path. Read through a {@code static final} {@link #invoker()}, the level is a constant
+ * to the JIT and the disabled logging branches are compiled away, instead of asking the
+ * logging bridge on every subscription. {@link #refreshAll()} reads the levels again and
+ * deoptimizes the code that folded the old ones, it has to be called when the logging
+ * levels are reconfigured.
+ */
+final class TraceLogSwitch {
+
+	private static final MethodType BOOLEAN = MethodType.methodType(boolean.class);
+
+	private static final List<TraceLogSwitch> SWITCHES = new CopyOnWriteArrayList<>();
+
+	private final Log log;
+
+	private final MutableCallSite callSite = new MutableCallSite(BOOLEAN);
+
+	private TraceLogSwitch(Log log) {
+		this.log = log;
+		this.callSite.setTarget(MethodHandles.constant(boolean.class, log.isTraceEnabled()));
+	}
+
+	/**
+	 * @param log logger whose trace level is switched
+	 * @return the switch, refreshed by {@link #refreshAll()}
+	 */
+	static TraceLogSwitch of(Log log) {
+		TraceLogSwitch traceLogSwitch = new TraceLogSwitch(log);
+		SWITCHES.add(traceLogSwitch);
+		return traceLogSwitch;
+	}
+
+	/**
+	 * @return handle returning whether trace is enabled, to keep in a {@code static final}
+	 * field and pass to {@link #isEnabled(MethodHandle)}
+	 */
+	MethodHandle invoker() {
+		return this.callSite.dynamicInvoker();
+	}
+
+	/**
+	 * @param invoker the {@link #invoker()} of a switch
+	 * @return {@code true} if trace is enabled
+	 */
+	static boolean isEnabled(MethodHandle invoker) {
+		try {
+			return (boolean) invoker.invokeExact();
+		}
+		catch (Throwable ex) {
+			// a constant handle does not throw
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Reads the trace level of every switch again.
+	 */
+	static void refreshAll() {
+		MutableCallSite[] changed = new MutableCallSite[SWITCHES.size()];
+		int count = 0;
+		for (TraceLogSwitch traceLogSwitch : SWITCHES) {
+			if (traceLogSwitch.refresh()) {
+				changed[count++] = traceLogSwitch.callSite;
+			}
+		}
+		if (count > 0) {
+			MutableCallSite.syncAll(Arrays.copyOf(changed, count));
+		}
+	}
+
+	private boolean refresh() {
+		boolean enabled = this.log.isTraceEnabled();
+		if (enabled == isEnabled(this.callSite.getTarget())) {
+			return false;
+		}
+		this.callSite.setTarget(MethodHandles.constant(boolean.class, enabled));
+		return true;
+	}
+
+}
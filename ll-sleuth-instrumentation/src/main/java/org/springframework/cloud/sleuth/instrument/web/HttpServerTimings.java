@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Records the duration of the exchanges {@link TraceWebFilter} traces, from the same
+ * termination callback that finishes the server span, with the route the span is tagged
+ * with. Saves a separate filter resolving the route again.
+ * <p>
+ * Called on the signals of the exchange, implementations must be thread safe.
+ */
+public interface HttpServerTimings {
+
+	/**
+	 * @return the start of an exchange, in the time unit of the implementation
+	 */
+	long start();
+
+	/**
+	 * @param start value of {@link #start()} when the exchange was subscribed
+	 * @param route the matched route pattern, {@code null} if no handler matched
+	 * @param method the request method
+	 * @param statusCode the response status code, {@code 0} if unknown
+	 */
+	void record(long start, @Nullable String route, String method, int statusCode);
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.micrometer.tracing.http.HttpServerRequest;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.AsciiString;
+
+import org.springframework.http.server.reactive.AbstractServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * {@link HttpServerRequest} of a Reactor Netty request that reads the headers from the
+ * native Netty {@link HttpHeaders}, without the {@code MultiValueMap} adapter Spring puts
+ * in front of them. The names of the B3 and W3C propagation headers are looked up as
+ * {@link AsciiString}s, whose case insensitive hash is computed once.
+ * <p>
+ * Only used for the request Spring creates for Reactor Netty: a request mutated through
+ * {@code ServerHttpRequest.Builder} has its own headers while still exposing the original
+ * native request.
+ */
+final class NettyWrappedRequest implements HttpServerRequest {
+
+	private static final Map<String, AsciiString> PROPAGATION_HEADER_NAMES = names("b3", "X-B3-TraceId",
+			"X-B3-SpanId", "X-B3-ParentSpanId", "X-B3-Sampled", "X-B3-Flags", "traceparent", "tracestate", "baggage");
+
+	final ServerHttpRequest delegate;
+
+	final HttpHeaders headers;
+
+	NettyWrappedRequest(ServerHttpRequest delegate, HttpHeaders headers) {
+		this.delegate = delegate;
+		this.headers = headers;
+	}
+
+	/**
+	 * @param request a {@code ReactorServerHttpRequest}
+	 * @return the request reading the native headers
+	 */
+	static NettyWrappedRequest of(ServerHttpRequest request) {
+		reactor.netty.http.server.HttpServerRequest nativeRequest = ((AbstractServerHttpRequest) request)
+				.getNativeRequest();
+		return new NettyWrappedRequest(request, nativeRequest.requestHeaders());
+	}
+
+	private static Map<String, AsciiString> names(String... names) {
+		Map<String, AsciiString> asciiNames = new HashMap<>();
+		for (String name : names) {
+			asciiNames.put(name, AsciiString.cached(name));
+		}
+		return Map.copyOf(asciiNames);
+	}
+
+	@Override
+	public Collection<String> headerNames() {
+		// a view, Netty's names() copies the names in a new set on every call
+		return this.delegate.getHeaders().keySet();
+	}
+
+	@Override
+	public ServerHttpRequest unwrap() {
+		return this.delegate;
+	}
+
+	@Override
+	public String method() {
+		return this.delegate.getMethod().name();
+	}
+
+	@Override
+	public String path() {
+		return this.delegate.getPath().toString();
+	}
+
+	@Override
+	public String url() {
+		return this.delegate.getURI().toString();
+	}
+
+	@Override
+	public String header(String name) {
+		AsciiString asciiName = PROPAGATION_HEADER_NAMES.get(name);
+		return this.headers.get(asciiName != null ? asciiName : name);
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Response writing its body in segment spans, children of the server span of the
+ * exchange, see {@link TraceStreamingRules}. The body is written as is when the exchange
+ * has no tracing state.
+ */
+final class StreamSegmentsResponse extends ServerHttpResponseDecorator {
+
+	private static final Log log = LogFactory.getLog(StreamSegmentsResponse.class);
+
+	static final String SEGMENT_SPAN_NAME = "http.stream.segment";
+
+	static final String SEGMENT_INDEX_TAG = "segment.index";
+
+	static final String SEGMENT_BUFFERS_TAG = "segment.buffers";
+
+	static final String SEGMENT_BYTES_TAG = "segment.bytes";
+
+	private final ServerWebExchange exchange;
+
+	private final Tracer tracer;
+
+	private final long intervalNanos;
+
+	StreamSegmentsResponse(ServerHttpResponse delegate, ServerWebExchange exchange, Tracer tracer,
+			long intervalNanos) {
+		super(delegate);
+		this.exchange = exchange;
+		this.tracer = tracer;
+		this.intervalNanos = intervalNanos;
+	}
+
+	@Override
+	public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+		return Mono.defer(() -> {
+			Segments segments = segments();
+			if (segments == null) {
+				return super.writeWith(body);
+			}
+			return segments.trace(super.writeWith(Flux.<DataBuffer>from(body).doOnNext(segments::onBuffer)));
+		});
+	}
+
+	@Override
+	public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+		return Mono.defer(() -> {
+			Segments segments = segments();
+			if (segments == null) {
+				return super.writeAndFlushWith(body);
+			}
+			return segments.trace(super.writeAndFlushWith(Flux.<Publisher<? extends DataBuffer>>from(body)
+					.<Publisher<? extends DataBuffer>>map(chunk -> Flux.from(chunk).doOnNext(segments::onBuffer))));
+		});
+	}
+
+	/**
+	 * @return the segments of a write, {@code null} if the exchange has no tracing
+	 * state. Looked up on subscription, the body may be written before the server span
+	 * is created.
+	 */
+	@Nullable
+	private Segments segments() {
+		TraceExchangeState state = TraceExchangeState.get(this.exchange);
+		return state != null ? new Segments(state.getSpan()) : null;
+	}
+
+	/**
+	 * Segments of one write. The buffers are signalled serially, possibly from different
+	 * threads, and the last segment ends with the terminal signal of the write, once the
+	 * buffers were written and flushed.
+	 * <p>
+	 * A segment is only ended by the first buffer arriving after its interval elapsed,
+	 * there is no timer: a stream that stalls keeps its segment open until the next
+	 * buffer or the terminal signal.
+	 * <p>
+	 * A cancellation may come from another thread than the one writing the buffers, the
+	 * signals are therefore handled under the lock of the segments, uncontended but for
+	 * that race. No segment is started once the write terminated.
+	 */
+	private final class Segments {
+
+		private final Span parent;
+
+		private boolean terminated;
+
+		@Nullable
+		private Span current;
+
+		private long currentStart;
+
+		private int index;
+
+		private int buffers;
+
+		private long bytes;
+
+		Segments(Span parent) {
+			this.parent = parent;
+		}
+
+		synchronized void onBuffer(DataBuffer buffer) {
+			if (this.terminated) {
+				return;
+			}
+			long now = System.nanoTime();
+			if (this.current != null && now - this.currentStart >= intervalNanos) {
+				endCurrent();
+			}
+			if (this.current == null) {
+				this.current = tracer.nextSpan(this.parent).name(SEGMENT_SPAN_NAME)
+						.tag(SEGMENT_INDEX_TAG, String.valueOf(this.index++)).start();
+				this.currentStart = now;
+			}
+			this.buffers++;
+			this.bytes += buffer.readableByteCount();
+		}
+
+		/**
+		 * Ends the last segment with the terminal signal of the write, which comes before
+		 * the server span ends.
+		 */
+		Mono<Void> trace(Mono<Void> write) {
+			return write.doOnSuccess(v -> onComplete()).doOnError(this::onError).doOnCancel(this::onCancel);
+		}
+
+		synchronized void onComplete() {
+			this.terminated = true;
+			if (this.current != null) {
+				endCurrent();
+			}
+		}
+
+		synchronized void onError(Throwable t) {
+			this.terminated = true;
+			if (this.current != null) {
+				this.current.error(t);
+				endCurrent();
+			}
+		}
+
+		synchronized void onCancel() {
+			this.terminated = true;
+			if (this.current != null) {
+				this.current.tag(TraceWebFilter.CANCELLED_TAG, "true");
+				endCurrent();
+			}
+		}
+
+		private void endCurrent() {
+			Span span = this.current;
+			span.tag(SEGMENT_BUFFERS_TAG, String.valueOf(this.buffers));
+			span.tag(SEGMENT_BYTES_TAG, String.valueOf(this.bytes));
+			span.end();
+			if (log.isDebugEnabled()) {
+				log.debug("Ended stream segment " + span + " of [" + this.buffers + "] buffers");
+			}
+			this.current = null;
+			this.buffers = 0;
+			this.bytes = 0L;
+		}
+
+	}
+
+}
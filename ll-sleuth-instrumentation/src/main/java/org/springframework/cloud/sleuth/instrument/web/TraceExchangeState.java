@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import io.micrometer.tracing.Span;
+
+import org.springframework.lang.Nullable;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Tracing state of a server exchange, stored by {@link TraceWebFilter} as the single
+ * {@link #ATTRIBUTE} exchange attribute. Other filters get the server span and, once the
+ * exchange is handled, the route and handler tags from it instead of looking up the
+ * individual attributes.
+ * <p>
+ * The state belongs to one exchange and is not thread safe, it is read and written
+ * along the signals of the exchange.
+ */
+public final class TraceExchangeState {
+
+	/**
+	 * Name of the exchange attribute holding the state.
+	 */
+	public static final String ATTRIBUTE = TraceExchangeState.class.getName();
+
+	private final Span span;
+
+	private boolean handlerResolved;
+
+	@Nullable
+	private String route;
+
+	@Nullable
+	private String handlerClass;
+
+	@Nullable
+	private String handlerMethod;
+
+	TraceExchangeState(Span span) {
+		this.span = span;
+	}
+
+	/**
+	 * @param exchange the server exchange
+	 * @return the tracing state of the exchange, or {@code null} if it is not traced
+	 */
+	@Nullable
+	public static TraceExchangeState get(ServerWebExchange exchange) {
+		return exchange.getAttribute(ATTRIBUTE);
+	}
+
+	/**
+	 * @return the server span of the exchange
+	 */
+	public Span getSpan() {
+		return this.span;
+	}
+
+	/**
+	 * @return the matched route pattern, {@code null} until the exchange is handled or if
+	 * no handler matched
+	 */
+	@Nullable
+	public String getRoute() {
+		return this.route;
+	}
+
+	/**
+	 * @return the simple name of the handler class, {@code null} until the exchange is
+	 * handled or if no handler matched
+	 */
+	@Nullable
+	public String getHandlerClass() {
+		return this.handlerClass;
+	}
+
+	/**
+	 * @return the name of the handler method, {@code null} until the exchange is handled
+	 * or if the handler is not a {@link HandlerMethod}
+	 */
+	@Nullable
+	public String getHandlerMethod() {
+		return this.handlerMethod;
+	}
+
+	/**
+	 * Reads the handler and the pattern the handler mapping put on the exchange, once.
+	 */
+	void resolveHandler(ServerWebExchange exchange) {
+		if (this.handlerResolved) {
+			return;
+		}
+		this.handlerResolved = true;
+		Object handler = exchange.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+		if (handler instanceof HandlerMethod) {
+			HandlerMethod handlerMethod = (HandlerMethod) handler;
+			this.handlerClass = handlerMethod.getBeanType().getSimpleName();
+			this.handlerMethod = handlerMethod.getMethod().getName();
+		}
+		else if (handler != null) {
+			this.handlerClass = handler.getClass().getSimpleName();
+		}
+		Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		this.route = pattern != null ? pattern.toString() : null;
+	}
+
+}
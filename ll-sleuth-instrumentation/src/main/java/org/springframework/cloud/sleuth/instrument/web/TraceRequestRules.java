@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.micrometer.tracing.SamplerFunction;
+import io.micrometer.tracing.http.HttpRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Decides which requests {@link TraceWebFilter} leaves untraced or does not sample, by
+ * path within the application. The patterns are {@link PathPattern}s parsed once, up
+ * front.
+ * <ul>
+ * <li>a request matching one of the skip patterns is never traced, it does not continue
+ * an inbound trace either, so the trace is not propagated to the calls it makes</li>
+ * <li>otherwise the first sample rate pattern matching the request gives the ratio of
+ * requests that are sampled, between {@code 0} (none) and {@code 1} (all). The rates are
+ * applied by the {@link #serverSampler() server sampler}, which the tracer only asks
+ * when the request carries no sampling decision of its own</li>
+ * <li>requests matching no pattern are sampled as the tracer decides</li>
+ * </ul>
+ */
+public final class TraceRequestRules {
+
+	static final TraceRequestRules NONE = new TraceRequestRules(Collections.emptyList(), Collections.emptyMap());
+
+	private final PathPattern[] skipPatterns;
+
+	private final PathPattern[] samplePatterns;
+
+	private final float[] sampleRates;
+
+	/**
+	 * @param skipPatterns patterns of the requests that are never traced
+	 * @param sampleRates ratio of traced requests by pattern, in iteration order
+	 */
+	public TraceRequestRules(Collection<String> skipPatterns, Map<String, Float> sampleRates) {
+		PathPatternParser parser = PathPatternParser.defaultInstance;
+		this.skipPatterns = skipPatterns.stream().map(parser::parse).toArray(PathPattern[]::new);
+		this.samplePatterns = new PathPattern[sampleRates.size()];
+		this.sampleRates = new float[sampleRates.size()];
+		int i = 0;
+		for (Map.Entry<String, Float> entry : sampleRates.entrySet()) {
+			float rate = entry.getValue();
+			Assert.isTrue(rate >= 0f && rate <= 1f,
+					() -> "Sample rate of [" + entry.getKey() + "] must be between 0 and 1 but was [" + rate + "]");
+			this.samplePatterns[i] = parser.parse(entry.getKey());
+			this.sampleRates[i] = rate;
+			i++;
+		}
+	}
+
+	/**
+	 * @param request the incoming request
+	 * @return {@code true} if the request should not be traced
+	 */
+	boolean shouldSkip(ServerHttpRequest request) {
+		if (this.skipPatterns.length == 0) {
+			return false;
+		}
+		PathContainer path = request.getPath().pathWithinApplication();
+		for (PathPattern pattern : this.skipPatterns) {
+			if (pattern.matches(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sampler of the server requests to set on the HTTP tracing of the tracer, e.g. with
+	 * Brave {@code HttpTracing.Builder.serverSampler(BraveSamplerFunction.toHttpBrave(rules.serverSampler()))}.
+	 * The tracer only asks it for the requests without an inbound sampling decision, the
+	 * root spans, so a trace sampled upstream is never cut. The sample rates have no
+	 * effect unless the sampler is set.
+	 * @return the sampler applying the sample rates, deferring to the tracer for the
+	 * requests matching no pattern
+	 */
+	public SamplerFunction<HttpRequest> serverSampler() {
+		if (this.samplePatterns.length == 0) {
+			return SamplerFunction.deferDecision();
+		}
+		return this::trySample;
+	}
+
+	@Nullable
+	private Boolean trySample(HttpRequest request) {
+		PathContainer path = pathOf(request);
+		if (path == null) {
+			return null;
+		}
+		for (int i = 0; i < this.samplePatterns.length; i++) {
+			if (this.samplePatterns[i].matches(path)) {
+				float rate = this.sampleRates[i];
+				return rate >= 1f || ThreadLocalRandom.current().nextFloat() < rate;
+			}
+		}
+		return null;
+	}
+
+	@Nullable
+	private static PathContainer pathOf(HttpRequest request) {
+		if (request.unwrap() instanceof ServerHttpRequest serverRequest) {
+			return serverRequest.getPath().pathWithinApplication();
+		}
+		String path = request.path();
+		return path != null ? PathContainer.parsePath(path) : null;
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * How {@link TraceWebFilter} traces responses written over time, e.g. server-sent events
+ * or a streamed {@code Flux<DataBuffer>}, whose server span only ends with the stream.
+ * <ul>
+ * <li>with the first byte event, the server span gets a {@value #FIRST_BYTE_EVENT} event
+ * when the response is committed, i.e. the time to first byte</li>
+ * <li>with a segment interval, the buffers of the body are written in child spans of the
+ * server span, a new one started for the first buffer written once the interval elapsed,
+ * tagged with the number of buffers and bytes</li>
+ * </ul>
+ */
+public final class TraceStreamingRules {
+
+	/**
+	 * Name of the event of the server span when the response is committed.
+	 */
+	public static final String FIRST_BYTE_EVENT = "first-byte";
+
+	static final TraceStreamingRules NONE = new TraceStreamingRules(false, null);
+
+	private final boolean firstByteEvent;
+
+	private final long segmentIntervalNanos;
+
+	/**
+	 * @param firstByteEvent whether the server span gets a {@value #FIRST_BYTE_EVENT}
+	 * event when the response is committed
+	 * @param segmentInterval duration after which the body is written in a new segment
+	 * span, {@code null} to not split the body in segments
+	 */
+	public TraceStreamingRules(boolean firstByteEvent, @Nullable Duration segmentInterval) {
+		Assert.isTrue(segmentInterval == null || !segmentInterval.isNegative() && !segmentInterval.isZero(),
+				() -> "Segment interval must be positive but was [" + segmentInterval + "]");
+		this.firstByteEvent = firstByteEvent;
+		this.segmentIntervalNanos = segmentInterval != null ? segmentInterval.toNanos() : 0L;
+	}
+
+	boolean isFirstByteEvent() {
+		return this.firstByteEvent;
+	}
+
+	boolean isSegmented() {
+		return this.segmentIntervalNanos > 0L;
+	}
+
+	long getSegmentIntervalNanos() {
+		return this.segmentIntervalNanos;
+	}
+
+}
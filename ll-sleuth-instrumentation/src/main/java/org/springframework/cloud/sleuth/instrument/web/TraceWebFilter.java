@@ -34,8 +34,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
-import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
@@ -46,8 +45,9 @@ import reactor.core.publisher.MonoOperator;
 import reactor.util.annotation.Nullable;
 import reactor.util.context.Context;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A {@link WebFilter} that creates / continues / closes and detaches spans for a reactive
@@ -59,43 +59,122 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Order(Ordered.HIGHEST_PRECEDENCE + 5)
 public class TraceWebFilter implements WebFilter {
 
-	// Remember that this can be used in other packages
+	// Remember that this can be used in other packages. A span set upstream under this
+	// attribute is continued, the server span is stored in the TraceExchangeState
 	protected static final String TRACE_REQUEST_ATTR = Span.class.getName();
 
 	private static final Log log = LogFactory.getLog(TraceWebFilter.class);
 
-	private static final String TRACE_SPAN_WITHOUT_PARENT = TraceWebFilter.class.getName() + ".SPAN_WITH_NO_PARENT";
+	static final String CANCELLED_TAG = "cancelled";
+
+	@Nullable
+	private static final Class<?> NETTY_REQUEST_CLASS = nettyRequestClass();
 
 	private final Tracer tracer;
 
 	private final HttpServerHandler handler;
 
+	private final TraceRequestRules rules;
+
+	@Nullable
+	private final HttpServerTimings timings;
+
+	private final TraceStreamingRules streaming;
+
 	private CurrentTraceContext currentTraceContext;
 
 	@Deprecated
 	public TraceWebFilter(Tracer tracer, HttpServerHandler handler) {
+		this(tracer, handler, TraceRequestRules.NONE, null, TraceStreamingRules.NONE);
+	}
+
+	/**
+	 * @param tracer the tracer
+	 * @param handler handler of the server spans
+	 * @param rules requests that are skipped
+	 * @param timings records the duration of the exchanges, {@code null} to not record
+	 * them
+	 * @param streaming how responses written over time are traced
+	 */
+	public TraceWebFilter(Tracer tracer, HttpServerHandler handler, TraceRequestRules rules,
+			@Nullable HttpServerTimings timings, TraceStreamingRules streaming) {
 		this.tracer = tracer;
 		this.handler = handler;
+		this.rules = rules;
+		this.timings = timings;
+		this.streaming = streaming;
 	}
 
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-		String uri = exchange.getRequest().getPath().pathWithinApplication().value();
-		Mono<Void> source = chain.filter(exchange);
-		boolean tracePresent = isTracePresent();
+		if (this.rules.shouldSkip(exchange.getRequest())) {
+			if (log.isTraceEnabled()) {
+				log.trace("Skipping tracing of a request to uri ["
+						+ exchange.getRequest().getPath().pathWithinApplication().value() + "]");
+			}
+			return chain.filter(exchange);
+		}
+		Mono<Void> source = chain.filter(this.streaming.isSegmented() ? segmented(exchange) : exchange);
+		boolean tracePresent = clearCurrentTrace(this.tracer, currentTraceContext());
 		if (log.isDebugEnabled()) {
-			log.debug("Received a request to uri [" + uri + "]");
+			log.debug("Received a request to uri ["
+					+ exchange.getRequest().getPath().pathWithinApplication().value() + "]");
 		}
 		return new MonoWebFilterTrace(source, exchange, tracePresent, this);
 	}
 
-	private boolean isTracePresent() {
-		boolean tracePresent = this.tracer.currentSpan() != null;
-		if (tracePresent) {
-			// clear any previous trace
-			this.tracer.withSpan(null); // TODO: dangerous and also allocates stuff
+	/**
+	 * @return the exchange writing the response body in segment spans, it shares the
+	 * attributes, hence the tracing state, of the given one
+	 */
+	private ServerWebExchange segmented(ServerWebExchange exchange) {
+		ServerHttpResponse response = new StreamSegmentsResponse(exchange.getResponse(), exchange, this.tracer,
+				this.streaming.getSegmentIntervalNanos());
+		return exchange.mutate().response(response).build();
+	}
+
+	/**
+	 * Clears a trace left on the current thread. Reading the current context does not
+	 * allocate when there is none, which is the common case on an event loop thread, so
+	 * the scope the tracer creates to clear it is only paid for when there is a trace.
+	 * @return {@code true} if there was a trace on the thread
+	 */
+	private static boolean clearCurrentTrace(Tracer tracer, CurrentTraceContext currentTraceContext) {
+		if (currentTraceContext.context() == null) {
+			return false;
+		}
+		// the scope is not closed on purpose, the thread is left without a trace
+		tracer.withSpan(null);
+		return true;
+	}
+
+	/**
+	 * @return the request Spring creates for Reactor Netty, when Reactor Netty is present
+	 */
+	@Nullable
+	private static Class<?> nettyRequestClass() {
+		ClassLoader classLoader = TraceWebFilter.class.getClassLoader();
+		if (!ClassUtils.isPresent("reactor.netty.http.server.HttpServerRequest", classLoader)) {
+			return null;
+		}
+		try {
+			return ClassUtils.forName("org.springframework.http.server.reactive.ReactorServerHttpRequest",
+					classLoader);
+		}
+		catch (ClassNotFoundException | LinkageError ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the request reading the native Netty headers for a Reactor Netty request,
+	 * the generic {@link WrappedRequest} otherwise
+	 */
+	static HttpServerRequest wrapRequest(ServerHttpRequest request) {
+		if (request.getClass() == NETTY_REQUEST_CLASS) {
+			return NettyWrappedRequest.of(request);
 		}
-		return tracePresent;
+		return new WrappedRequest(request);
 	}
 
 	private CurrentTraceContext currentTraceContext() {
@@ -107,6 +186,18 @@ public class TraceWebFilter implements WebFilter {
 
 	private static class MonoWebFilterTrace extends MonoOperator<Void, Void> implements TraceContextPropagator {
 
+		private static final VarHandle INITIAL_SPAN_REMOVED;
+
+		static {
+			try {
+				INITIAL_SPAN_REMOVED = MethodHandles.lookup().findVarHandle(MonoWebFilterTrace.class,
+						"initialSpanRemoved", boolean.class);
+			}
+			catch (ReflectiveOperationException ex) {
+				throw new ExceptionInInitializerError(ex);
+			}
+		}
+
 		final ServerWebExchange exchange;
 
 		final Tracer tracer;
@@ -115,10 +206,17 @@ public class TraceWebFilter implements WebFilter {
 
 		final HttpServerHandler handler;
 
-		final AtomicBoolean initialSpanAlreadyRemoved = new AtomicBoolean();
+		@Nullable
+		final HttpServerTimings timings;
+
+		final TraceStreamingRules streaming;
 
 		final boolean initialTracePresent;
 
+		// plain field, the single subscription per request reads it without a barrier and
+		// a resubscription races through INITIAL_SPAN_REMOVED
+		boolean initialSpanRemoved;
+
 		final CurrentTraceContext currentTraceContext;
 
 		MonoWebFilterTrace(Mono<? extends Void> source, ServerWebExchange exchange, boolean initialTracePresent,
@@ -126,18 +224,26 @@ public class TraceWebFilter implements WebFilter {
 			super(source);
 			this.tracer = parent.tracer;
 			this.handler = parent.handler;
+			this.timings = parent.timings;
+			this.streaming = parent.streaming;
 			this.currentTraceContext = parent.currentTraceContext();
 			this.exchange = exchange;
-			this.span = exchange.getAttribute(TRACE_REQUEST_ATTR);
+			TraceExchangeState state = TraceExchangeState.get(exchange);
+			this.span = state != null ? state.getSpan() : exchange.getAttribute(TRACE_REQUEST_ATTR);
 			this.initialTracePresent = initialTracePresent;
 		}
 
 		@Override
 		public void subscribe(CoreSubscriber<? super Void> subscriber) {
-			Context context = contextWithoutInitialSpan(subscriber.currentContext());
-			Span span = findOrCreateSpan(context);
-			try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(span.context())) {
-				this.source.subscribe(new WebFilterTraceSubscriber(subscriber, context, span, this));
+			Context downstream = subscriber.currentContext();
+			boolean removeInitialSpan = shouldRemoveInitialSpan();
+			TraceExchangeState state = findOrCreateState(downstream, removeInitialSpan);
+			if (this.streaming.isFirstByteEvent()) {
+				addFirstByteEvent(state.getSpan());
+			}
+			Context context = tracingContext(downstream, removeInitialSpan, state.getSpan());
+			try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(state.getSpan().context())) {
+				this.source.subscribe(new WebFilterTraceSubscriber(subscriber, context, state, this));
 			}
 		}
 
@@ -149,17 +255,32 @@ public class TraceWebFilter implements WebFilter {
 			return super.scanUnsafe(key);
 		}
 
-		private Context contextWithoutInitialSpan(Context context) {
-			if (this.initialTracePresent && !this.initialSpanAlreadyRemoved.get()) {
+		/**
+		 * @return {@code true} if this subscription is the first one after a trace was
+		 * found on the thread, its span is then not taken from the downstream context
+		 */
+		private boolean shouldRemoveInitialSpan() {
+			if (!this.initialTracePresent || this.initialSpanRemoved) {
+				return false;
+			}
+			return INITIAL_SPAN_REMOVED.compareAndSet(this, false, true);
+		}
+
+		/**
+		 * Builds the context of the subscriber with the trace context of the span. The
+		 * downstream context is only copied once, unless it holds a span to remove.
+		 */
+		private static Context tracingContext(Context downstream, boolean removeInitialSpan, Span span) {
+			Context context = downstream;
+			if (removeInitialSpan && context.hasKey(Span.class)) {
 				context = context.delete(Span.class);
-				this.initialSpanAlreadyRemoved.set(true);
 			}
-			return context;
+			return ReactorSleuth.wrapContext(context.put(TraceContext.class, span.context()));
 		}
 
-		private Span findOrCreateSpan(Context c) {
+		private TraceExchangeState findOrCreateState(Context c, boolean initialSpanRemoved) {
 			Span span = null;
-			if (c.hasKey(Span.class)) {
+			if (!initialSpanRemoved && c.hasKey(Span.class)) {
 				Span parent = c.get(Span.class);
 				try (Tracer.SpanInScope spanInScope = this.tracer.withSpan(parent)) {
 					span = this.tracer.nextSpan();
@@ -167,6 +288,7 @@ public class TraceWebFilter implements WebFilter {
 				if (log.isDebugEnabled()) {
 					log.debug("Found span in reactor context" + span);
 				}
+				return storeState(span);
 			}
 			else {
 				if (this.span != null) {
@@ -179,7 +301,7 @@ public class TraceWebFilter implements WebFilter {
 				}
 
 				if (this.span == null) {
-					span = this.handler.handleReceive(new WrappedRequest(this.exchange.getRequest()));
+					span = this.handler.handleReceive(wrapRequest(this.exchange.getRequest()));
 					if (log.isDebugEnabled()) {
 						log.debug("Handled receive of span " + span);
 					}
@@ -187,17 +309,43 @@ public class TraceWebFilter implements WebFilter {
 				else if (log.isDebugEnabled()) {
 					log.debug("Found tracer specific span in reactor context [" + span + "]");
 				}
-				this.exchange.getAttributes().put(TRACE_REQUEST_ATTR, span);
+				return storeState(span);
 			}
-			return span;
 		}
 
-		static final class WebFilterTraceSubscriber implements CoreSubscriber<Void> {
+		private TraceExchangeState storeState(Span span) {
+			TraceExchangeState state = new TraceExchangeState(span);
+			this.exchange.getAttributes().put(TraceExchangeState.ATTRIBUTE, state);
+			return state;
+		}
+
+		private void addFirstByteEvent(Span span) {
+			this.exchange.getResponse().beforeCommit(() -> {
+				span.event(TraceStreamingRules.FIRST_BYTE_EVENT);
+				return Mono.empty();
+			});
+		}
+
+		static final class WebFilterTraceSubscriber implements CoreSubscriber<Void>, Subscription {
+
+			private static final VarHandle TERMINATED;
+
+			static {
+				try {
+					TERMINATED = MethodHandles.lookup().findVarHandle(WebFilterTraceSubscriber.class, "terminated",
+							boolean.class);
+				}
+				catch (ReflectiveOperationException ex) {
+					throw new ExceptionInInitializerError(ex);
+				}
+			}
 
 			final CoreSubscriber<? super Void> actual;
 
 			final Context context;
 
+			final TraceExchangeState state;
+
 			final Span span;
 
 			final Tracer tracer;
@@ -206,19 +354,37 @@ public class TraceWebFilter implements WebFilter {
 
 			final HttpServerHandler handler;
 
-			WebFilterTraceSubscriber(CoreSubscriber<? super Void> actual, Context context, Span span,
+			final CurrentTraceContext currentTraceContext;
+
+			@Nullable
+			final HttpServerTimings timings;
+
+			final long start;
+
+			Subscription s;
+
+			// CAS'd through TERMINATED, a client disconnect cancels concurrently with the
+			// completion of the chain
+			volatile boolean terminated;
+
+			WebFilterTraceSubscriber(CoreSubscriber<? super Void> actual, Context context, TraceExchangeState state,
 					MonoWebFilterTrace parent) {
 				this.actual = actual;
-				this.span = span;
+				this.state = state;
+				this.span = state.getSpan();
 				this.tracer = parent.tracer;
-				this.context = ReactorSleuth.wrapContext(context.put(TraceContext.class, span.context()));
+				this.context = context;
 				this.exchange = parent.exchange;
 				this.handler = parent.handler;
+				this.currentTraceContext = parent.currentTraceContext;
+				this.timings = parent.timings;
+				this.start = this.timings != null ? this.timings.start() : 0L;
 			}
 
 			@Override
 			public void onSubscribe(Subscription subscription) {
-				this.actual.onSubscribe(subscription);
+				this.s = subscription;
+				this.actual.onSubscribe(this);
 			}
 
 			@Override
@@ -228,74 +394,72 @@ public class TraceWebFilter implements WebFilter {
 
 			@Override
 			public void onError(Throwable t) {
-				terminateSpan(t);
+				terminateSpan(t, false);
 				this.actual.onError(t);
 			}
 
 			@Override
 			public void onComplete() {
-				terminateSpan(null);
+				terminateSpan(null, false);
 				this.actual.onComplete();
 			}
 
+			@Override
+			public void request(long n) {
+				this.s.request(n);
+			}
+
+			@Override
+			public void cancel() {
+				// upstream first, so that the spans of the chain (e.g. stream segments) end
+				// before the server span
+				this.s.cancel();
+				terminateSpan(null, true);
+			}
+
 			@Override
 			public Context currentContext() {
 				return this.context;
 			}
 
-			private void terminateSpan(@Nullable Throwable t) {
-				Object attribute = this.exchange.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
-				addClassMethodTag(attribute, this.span);
-				addClassNameTag(attribute, this.span);
-				Object pattern = this.exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
-				String httpRoute = pattern != null ? pattern.toString() : "";
-				addResponseTagsForSpanWithoutParent(this.exchange, this.exchange.getResponse(), this.span);
-				WrappedResponse response = new WrappedResponse(this.exchange.getResponse(),
-						this.exchange.getRequest().getMethod().name(), httpRoute, t);
+			private void terminateSpan(@Nullable Throwable t, boolean cancelled) {
+				if (!TERMINATED.compareAndSet(this, false, true)) {
+					return;
+				}
+				if (cancelled) {
+					this.span.tag(CANCELLED_TAG, "true");
+				}
+				this.state.resolveHandler(this.exchange);
+				addHandlerTags(this.state, this.span);
+				String httpRoute = this.state.getRoute() != null ? this.state.getRoute() : "";
+				String method = this.exchange.getRequest().getMethod().name();
+				WrappedResponse response = new WrappedResponse(this.exchange.getResponse(), method, httpRoute, t);
 				this.handler.handleSend(response, this.span);
 				if (log.isDebugEnabled()) {
-					log.debug("Handled send of " + this.span);
+					log.debug((cancelled ? "Exchange cancelled, handled send of " : "Handled send of ") + this.span);
+				}
+				if (this.timings != null) {
+					this.timings.record(this.start, this.state.getRoute(), method, response.statusCode());
 				}
-				tracer.withSpan(null);
+				clearCurrentTrace(this.tracer, this.currentTraceContext);
 			}
 
-			private void addClassMethodTag(Object handler, Span span) {
-				if (handler instanceof HandlerMethod) {
-					String methodName = ((HandlerMethod) handler).getMethod().getName();
+			private void addHandlerTags(TraceExchangeState state, Span span) {
+				String methodName = state.getHandlerMethod();
+				if (methodName != null) {
 					span.tag(SleuthWebSpan.Tags.METHOD.name(), methodName);
 					if (log.isDebugEnabled()) {
 						log.debug("Adding a method tag with value [" + methodName + "] to a span " + span);
 					}
 				}
-			}
-
-			private void addClassNameTag(Object handler, Span span) {
-				if (handler == null) {
-					return;
-				}
-				String className;
-				if (handler instanceof HandlerMethod) {
-					className = ((HandlerMethod) handler).getBeanType().getSimpleName();
-				}
-				else {
-					className = handler.getClass().getSimpleName();
-				}
-				if (log.isDebugEnabled()) {
-					log.debug("Adding a class tag with value [" + className + "] to a span " + span);
-				}
-				span.tag(SleuthWebSpan.Tags.CLASS.name(), className);
-			}
-
-			private void addResponseTagsForSpanWithoutParent(ServerWebExchange exchange, ServerHttpResponse response,
-					Span span) {
-				if (spanWithoutParent(exchange) && response.getStatusCode() != null && span != null) {
-					span.tag(SleuthWebSpan.Tags.CLASS.name(), String.valueOf(response.getStatusCode().value()));
+				String className = state.getHandlerClass();
+				if (className != null) {
+					if (log.isDebugEnabled()) {
+						log.debug("Adding a class tag with value [" + className + "] to a span " + span);
+					}
+					span.tag(SleuthWebSpan.Tags.CLASS.name(), className);
 				}
 			}
-
-			private boolean spanWithoutParent(ServerWebExchange exchange) {
-				return exchange.getAttribute(TRACE_SPAN_WITHOUT_PARENT) != null;
-			}
 		}
 	}
 
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web.client;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.http.HttpClientHandler;
+import io.micrometer.tracing.http.HttpClientRequest;
+import io.micrometer.tracing.http.HttpClientResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Scannable;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import org.springframework.cloud.sleuth.instrument.reactor.ReactorSleuth;
+import org.springframework.cloud.sleuth.instrument.reactor.TraceContextPropagator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+/**
+ * An {@link ExchangeFilterFunction} that creates a client span per exchange and
+ * propagates it to the called service.
+ * <p>
+ * The parent is the trace context of the subscriber (e.g. the one put by
+ * {@code TraceWebFilter}), or the current one. The propagation headers are collected
+ * in a flat array and copied once into the {@link ClientRequest} passed on, so that
+ * they are part of its {@link ClientRequest#headers() headers}.
+ */
+public final class TraceWebClientExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Log log = LogFactory.getLog(TraceWebClientExchangeFilterFunction.class);
+
+	static final String CANCELLED_TAG = "cancelled";
+
+	final CurrentTraceContext currentTraceContext;
+
+	final HttpClientHandler handler;
+
+	public TraceWebClientExchangeFilterFunction(Tracer tracer, HttpClientHandler handler) {
+		this.currentTraceContext = tracer.currentTraceContext();
+		this.handler = handler;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		return new MonoWebClientTrace(request, next, this);
+	}
+
+	private static final class MonoWebClientTrace extends Mono<ClientResponse>
+			implements Scannable, TraceContextPropagator {
+
+		final ClientRequest request;
+
+		final ExchangeFunction next;
+
+		final TraceWebClientExchangeFilterFunction parent;
+
+		MonoWebClientTrace(ClientRequest request, ExchangeFunction next, TraceWebClientExchangeFilterFunction parent) {
+			this.request = request;
+			this.next = next;
+			this.parent = parent;
+		}
+
+		@Override
+		public void subscribe(CoreSubscriber<? super ClientResponse> subscriber) {
+			Context context = subscriber.currentContext();
+			TraceContext parentContext = context.getOrDefault(TraceContext.class, null);
+			WrappedRequest wrapped = new WrappedRequest(this.request);
+			Span span = parentContext != null ? this.parent.handler.handleSend(wrapped, parentContext)
+					: this.parent.handler.handleSend(wrapped);
+			if (log.isDebugEnabled()) {
+				log.debug("Handled send of " + span);
+			}
+			try (CurrentTraceContext.Scope scope = this.parent.currentTraceContext.maybeScope(span.context())) {
+				this.next.exchange(wrapped.tracedRequest())
+					.subscribe(new WebClientTraceSubscriber(subscriber, context, span, wrapped, this.parent.handler));
+			}
+		}
+
+		// raw Attr as declared by Scannable, a parameterized one would not override it
+		@Nullable
+		@Override
+		@SuppressWarnings("rawtypes")
+		public Object scanUnsafe(Attr key) {
+			if (key == Attr.RUN_STYLE) {
+				return Attr.RunStyle.SYNC;
+			}
+			return null;
+		}
+
+	}
+
+	static final class WebClientTraceSubscriber
+			implements CoreSubscriber<ClientResponse>, Subscription {
+
+		private static final VarHandle TERMINATED;
+
+		static {
+			try {
+				TERMINATED = MethodHandles.lookup().findVarHandle(WebClientTraceSubscriber.class, "terminated",
+						boolean.class);
+			}
+			catch (ReflectiveOperationException ex) {
+				throw new ExceptionInInitializerError(ex);
+			}
+		}
+
+		final CoreSubscriber<? super ClientResponse> actual;
+
+		final Context context;
+
+		final Span span;
+
+		final WrappedRequest request;
+
+		final HttpClientHandler handler;
+
+		Subscription s;
+
+		// CAS'd through TERMINATED, cancel may race with the response
+		volatile boolean terminated;
+
+		WebClientTraceSubscriber(CoreSubscriber<? super ClientResponse> actual, Context context, Span span,
+				WrappedRequest request, HttpClientHandler handler) {
+			this.actual = actual;
+			this.context = ReactorSleuth.wrapContext(context.put(TraceContext.class, span.context()));
+			this.span = span;
+			this.request = request;
+			this.handler = handler;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.s = subscription;
+			this.actual.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(ClientResponse response) {
+			terminateSpan(response, null);
+			this.actual.onNext(response);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			terminateSpan(null, t);
+			this.actual.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			terminateSpan(null, null);
+			this.actual.onComplete();
+		}
+
+		@Override
+		public void request(long n) {
+			this.s.request(n);
+		}
+
+		@Override
+		public void cancel() {
+			if (TERMINATED.compareAndSet(this, false, true)) {
+				this.span.tag(CANCELLED_TAG, "true");
+				this.handler.handleReceive(new WrappedResponse(this.request, null, null), this.span);
+				if (log.isDebugEnabled()) {
+					log.debug("Exchange cancelled, handled receive of " + this.span);
+				}
+			}
+			this.s.cancel();
+		}
+
+		@Override
+		public Context currentContext() {
+			return this.context;
+		}
+
+		private void terminateSpan(@Nullable ClientResponse response, @Nullable Throwable t) {
+			if (!TERMINATED.compareAndSet(this, false, true)) {
+				return;
+			}
+			this.handler.handleReceive(new WrappedResponse(this.request, response, t), this.span);
+			if (log.isDebugEnabled()) {
+				log.debug("Handled receive of " + this.span);
+			}
+		}
+
+	}
+
+	/**
+	 * Collects the injected headers in a flat name / value array instead of a copy of the
+	 * request headers.
+	 */
+	static final class WrappedRequest implements HttpClientRequest {
+
+		final ClientRequest delegate;
+
+		String[] headers = new String[8];
+
+		int size;
+
+		WrappedRequest(ClientRequest delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Collection<String> headerNames() {
+			return this.delegate.headers().keySet();
+		}
+
+		@Override
+		public ClientRequest unwrap() {
+			return this.delegate;
+		}
+
+		@Override
+		public String method() {
+			return this.delegate.method().name();
+		}
+
+		@Override
+		public String path() {
+			return this.delegate.url().getPath();
+		}
+
+		@Override
+		public String url() {
+			return this.delegate.url().toString();
+		}
+
+		@Override
+		public String header(String name) {
+			for (int i = 0; i < this.size; i += 2) {
+				if (this.headers[i].equalsIgnoreCase(name)) {
+					return this.headers[i + 1];
+				}
+			}
+			return this.delegate.headers().getFirst(name);
+		}
+
+		@Override
+		public void header(String name, String value) {
+			for (int i = 0; i < this.size; i += 2) {
+				if (this.headers[i].equalsIgnoreCase(name)) {
+					this.headers[i + 1] = value;
+					return;
+				}
+			}
+			if (this.size == this.headers.length) {
+				this.headers = Arrays.copyOf(this.headers, this.size * 2);
+			}
+			this.headers[this.size++] = name;
+			this.headers[this.size++] = value;
+		}
+
+		/**
+		 * @return a copy of the request with the injected headers, they win over headers
+		 * of the same name the application set. Filters after this one rebuilding the
+		 * request from it keep them.
+		 */
+		ClientRequest tracedRequest() {
+			if (this.size == 0) {
+				return this.delegate;
+			}
+			return ClientRequest.from(this.delegate).headers(this::injectInto).build();
+		}
+
+		private void injectInto(HttpHeaders target) {
+			for (int i = 0; i < this.size; i += 2) {
+				target.set(this.headers[i], this.headers[i + 1]);
+			}
+		}
+
+	}
+
+	static final class WrappedResponse implements HttpClientResponse {
+
+		final WrappedRequest request;
+
+		@Nullable
+		final ClientResponse delegate;
+
+		@Nullable
+		final Throwable throwable;
+
+		WrappedResponse(WrappedRequest request, @Nullable ClientResponse delegate, @Nullable Throwable throwable) {
+			this.request = request;
+			this.delegate = delegate;
+			this.throwable = throwable;
+		}
+
+		@Override
+		public WrappedRequest request() {
+			return this.request;
+		}
+
+		@Override
+		public Collection<String> headerNames() {
+			return this.delegate != null ? this.delegate.headers().asHttpHeaders().keySet()
+					: Collections.emptyList();
+		}
+
+		@Override
+		public String header(String name) {
+			return this.delegate != null ? this.delegate.headers().asHttpHeaders().getFirst(name) : null;
+		}
+
+		@Override
+		public int statusCode() {
+			return this.delegate != null ? this.delegate.statusCode().value() : 0;
+		}
+
+		@Override
+		@Nullable
+		public ClientResponse unwrap() {
+			return this.delegate;
+		}
+
+		@Override
+		@Nullable
+		public Throwable error() {
+			return this.throwable;
+		}
+
+	}
+
+}
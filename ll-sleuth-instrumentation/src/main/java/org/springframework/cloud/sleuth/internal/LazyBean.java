@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.sleuth.internal;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -27,6 +31,14 @@ import org.springframework.lang.Nullable;
  * times or throwing an exception.
  *
  * <p>
+ * The bean is published with release / acquire semantics, once provisioned a read is a
+ * single load. A single thread at a time asks the bean factory, without holding a lock,
+ * the bean factory takes its own locks: it marks the bean as being provisioned with a
+ * compare and set and the threads racing with it get {@code null} from {@link #get()}.
+ * A failure is remembered and the bean factory is not asked again before a backoff,
+ * which doubles with every failure, elapsed.
+ *
+ * <p>
  * Note: This is an internal class to sleuth and must not be used by external code.
  */
 public final class LazyBean<T> {
@@ -38,11 +50,34 @@ public final class LazyBean<T> {
 	// spring-jcl uses commons-logging, so do we.
 	private static final Log log = LogFactory.getLog(LazyBean.class);
 
+	static final long INITIAL_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	// value of a bean being provisioned by another thread
+	private static final Object PROVISIONING = new Object();
+
+	private static final VarHandle VALUE;
+
+	static {
+		try {
+			VALUE = MethodHandles.lookup().findVarHandle(LazyBean.class, "value", Object.class);
+		}
+		catch (ReflectiveOperationException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
 	final ConfigurableApplicationContext springContext;
 
 	final Class<T> requiredType;
 
-	T value;
+	// null, PROVISIONING or the bean, read and written through VALUE
+	Object value;
+
+	// written before the value is released
+	@Nullable
+	private Failure failure;
 
 	LazyBean(ConfigurableApplicationContext springContext, Class<T> requiredType) {
 		this.springContext = springContext;
@@ -50,35 +85,105 @@ public final class LazyBean<T> {
 	}
 
 	/**
-	 * Attempts to provision from the underlying bean factory, if not already provisioned.
+	 * Attempts to provision from the underlying bean factory, if not already provisioned,
+	 * not being provisioned by another thread and not in the backoff of a previous
+	 * failure.
 	 * @return the bean value or null if there was an exception getting it.
 	 */
 	@Nullable
+	@SuppressWarnings("unchecked")
 	public T get() {
+		Object value = VALUE.getAcquire(this);
+		if (value == PROVISIONING) {
+			return null;
+		}
+		if (value != null) {
+			return (T) value;
+		}
+		Failure failure = this.failure;
+		if (failure != null && !failure.canRetry()) {
+			return null;
+		}
+		if (!VALUE.compareAndSet(this, null, PROVISIONING)) {
+			value = VALUE.getAcquire(this);
+			return value != PROVISIONING ? (T) value : null;
+		}
 		try {
-			return getOrError();
+			return provision();
 		}
 		catch (Exception ex) {
 			if (log.isDebugEnabled()) {
 				log.debug("Spring context [" + springContext + "] error getting [" + requiredType + "].", ex);
 			}
 		}
-		return this.value;
+		return null;
 	}
 
 	/**
 	 * Attempts to provision from the underlying bean factory, if not already provisioned.
-	 * @return the bean value. This variant does not catch exception.
+	 * @return the bean value. This variant does not catch exception, in the backoff of a
+	 * previous failure it rethrows the exception of that failure. While another thread
+	 * provisions the bean it asks the bean factory too, without publishing the result.
 	 */
+	@SuppressWarnings("unchecked")
 	public T getOrError() {
-		T bean = this.value;
-		if (bean != null) {
-			return bean;
+		Object value = VALUE.getAcquire(this);
+		if (value != null && value != PROVISIONING) {
+			return (T) value;
+		}
+		Failure failure = this.failure;
+		if (failure != null && !failure.canRetry()) {
+			throw failure.exception;
+		}
+		if (value == null && VALUE.compareAndSet(this, null, PROVISIONING)) {
+			return provision();
 		}
+		value = VALUE.getAcquire(this);
+		if (value != null && value != PROVISIONING) {
+			return (T) value;
+		}
+		return this.springContext.getBean(this.requiredType);
+	}
 
-		bean = springContext.getBean(requiredType);
-		this.value = bean;
+	// called by the thread that set PROVISIONING
+	@SuppressWarnings("unchecked")
+	private T provision() {
+		Failure failure = this.failure;
+		T bean;
+		try {
+			// not under a lock of this class, the bean factory may call back into code
+			// getting this bean from another thread
+			bean = this.springContext.getBean(this.requiredType);
+		}
+		catch (RuntimeException ex) {
+			this.failure = new Failure(ex, failure != null ? failure.backoffNanos : 0L);
+			VALUE.setRelease(this, null);
+			throw ex;
+		}
+		this.failure = null;
+		VALUE.setRelease(this, bean);
 		return bean;
 	}
 
+	private static final class Failure {
+
+		final RuntimeException exception;
+
+		final long backoffNanos;
+
+		final long retryAtNanos;
+
+		Failure(RuntimeException exception, long previousBackoffNanos) {
+			this.exception = exception;
+			this.backoffNanos = previousBackoffNanos == 0L ? INITIAL_BACKOFF_NANOS
+					: Math.min(previousBackoffNanos * 2, MAX_BACKOFF_NANOS);
+			this.retryAtNanos = System.nanoTime() + this.backoffNanos;
+		}
+
+		boolean canRetry() {
+			return System.nanoTime() - this.retryAtNanos >= 0;
+		}
+
+	}
+
 }
@@ -18,7 +18,6 @@ package org.springframework.cloud.sleuth.internal;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.beans.factory.BeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -27,6 +26,9 @@ import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.SmartApplicationListener;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -39,7 +41,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class SleuthContextListener implements SmartApplicationListener {
 
-	static final Map<Integer, SleuthContextListener> CACHE = new ConcurrentHashMap<>();
+	/**
+	 * Listener per context. The contexts are weakly referenced and compared by identity,
+	 * an entry is removed when its context gets closed or, failing that, once the context
+	 * was garbage collected.
+	 */
+	static final Map<ContextKey, SleuthContextListener> CACHE = new ConcurrentHashMap<>();
+
+	private static final ReferenceQueue<ApplicationContext> COLLECTED = new ReferenceQueue<>();
 
 	private static final Log log = LogFactory.getLog(SleuthContextListener.class);
 
@@ -47,6 +56,43 @@ public class SleuthContextListener implements SmartApplicationListener {
 
 	final AtomicBoolean closed = new AtomicBoolean();
 
+	private volatile boolean ready;
+
+	// the context this listener follows, events of child contexts are ignored
+	private final WeakReference<ApplicationContext> context;
+
+	private SleuthContextListener(ApplicationContext context) {
+		this.context = new WeakReference<>(context);
+	}
+
+	/**
+	 * Returns the listener of the context. If there is none yet, a new one is registered
+	 * with the context, marked as ready if the context is already refreshed and running.
+	 * @param springContext the Spring context
+	 * @return listener following the lifecycle of the context
+	 */
+	public static SleuthContextListener getBean(ConfigurableApplicationContext springContext) {
+		SleuthContextListener listener = new SleuthContextListener(springContext);
+		SleuthContextListener registered = register(springContext, listener);
+		if (registered == listener) {
+			if (springContext.isActive() && springContext.isRunning()) {
+				// the refreshed event has been published already
+				listener.refreshed.set(true);
+				listener.ready = true;
+			}
+			springContext.addApplicationListener(listener);
+		}
+		return registered;
+	}
+
+	/**
+	 * @return {@code true} once the context was refreshed and until it gets closed, reads
+	 * a single volatile field
+	 */
+	public boolean isReady() {
+		return this.ready;
+	}
+
 	@Override
 	public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
 		return ContextClosedEvent.class.isAssignableFrom(eventType)
@@ -56,20 +102,65 @@ public class SleuthContextListener implements SmartApplicationListener {
 	@Override
 	public void onApplicationEvent(ApplicationEvent event) {
 		if (event instanceof ContextRefreshedEvent || event instanceof ContextClosedEvent) {
+			ApplicationContext context = ((ApplicationContextEvent) event).getApplicationContext();
+			if (context != this.context.get()) {
+				// a child context publishes its events to the parent listeners too
+				return;
+			}
 			if (log.isTraceEnabled()) {
 				log.trace("Context refreshed or closed [" + event + "]");
 			}
-			ApplicationContextEvent contextEvent = (ApplicationContextEvent) event;
-			ApplicationContext context = contextEvent.getApplicationContext();
-			BeanFactory beanFactory = context;
-			if (context instanceof ConfigurableApplicationContext) {
-				beanFactory = ((ConfigurableApplicationContext) context).getBeanFactory();
+			this.refreshed.compareAndSet(false, event instanceof ContextRefreshedEvent);
+			this.closed.compareAndSet(false, event instanceof ContextClosedEvent);
+			this.ready = this.refreshed.get() && !this.closed.get();
+			if (event instanceof ContextClosedEvent) {
+				CACHE.remove(new ContextKey(context, null));
 			}
-			SleuthContextListener listener = CACHE.getOrDefault(beanFactory.hashCode(), this);
-			listener.refreshed.compareAndSet(false, event instanceof ContextRefreshedEvent);
-			listener.closed.compareAndSet(false, event instanceof ContextClosedEvent);
-			CACHE.put(beanFactory.hashCode(), listener);
 		}
 	}
 
+	/**
+	 * @return the listener registered for the context, the given one if there was none
+	 */
+	static SleuthContextListener register(ApplicationContext context, SleuthContextListener listener) {
+		expungeCollected();
+		SleuthContextListener registered = CACHE.putIfAbsent(new ContextKey(context, COLLECTED), listener);
+		return registered != null ? registered : listener;
+	}
+
+	private static void expungeCollected() {
+		Reference<? extends ApplicationContext> collected;
+		while ((collected = COLLECTED.poll()) != null) {
+			CACHE.remove(collected);
+		}
+	}
+
+	static final class ContextKey extends WeakReference<ApplicationContext> {
+
+		private final int hash;
+
+		ContextKey(ApplicationContext context, ReferenceQueue<ApplicationContext> queue) {
+			super(context, queue);
+			this.hash = System.identityHashCode(context);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof ContextKey)) {
+				return false;
+			}
+			ApplicationContext context = get();
+			return context != null && context == ((ContextKey) o).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+	}
+
 }
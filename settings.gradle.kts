@@ -1,4 +1,5 @@
 rootProject.name = "ll-sleuth"
 
 include(":ll-sleuth-autoconfigure")
-include(":ll-sleuth-instrumentation")
\ No newline at end of file
+include(":ll-sleuth-instrumentation")
+include(":ll-sleuth-benchmarks")
\ No newline at end of file